@@ -24,25 +24,25 @@ public class MainActivity extends AppCompatActivity {
 
         dialViewLeft.setOnDialValueChangeListener(new DialView.OnDialValueChangeListener() {
             @Override
-            public void onDialValueChanged(String value, int maxValue) {
+            public void onDialValueChanged(String value, int index, int maxValue) {
                 textViewLeft.setText(value+ "  : ");
             }
         });
         dialViewTop.setOnDialValueChangeListener(new DialView.OnDialValueChangeListener() {
             @Override
-            public void onDialValueChanged(String value, int maxValue) {
+            public void onDialValueChanged(String value, int index, int maxValue) {
                 textViewTop.setText(value);
             }
         });
         dialViewRight.setOnDialValueChangeListener(new DialView.OnDialValueChangeListener() {
             @Override
-            public void onDialValueChanged(String value, int maxValue) {
+            public void onDialValueChanged(String value, int index, int maxValue) {
                 textViewRight.setText(value);
             }
         });
         dialViewBottom.setOnDialValueChangeListener(new DialView.OnDialValueChangeListener() {
             @Override
-            public void onDialValueChanged(String value, int maxValue) {
+            public void onDialValueChanged(String value, int index, int maxValue) {
                 textViewBottom.setText(value);
             }
         });
@@ -0,0 +1,93 @@
+package com.moldedbits.dialpicker.benchmark;
+
+import com.moldedbits.dialpicker.DialGeometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-frame costs of {@link DialGeometry}: laying out the visible ticks, looking up the
+ * selected value and stepping a fling. Every call moves the dial on by one frame, so the
+ * numbers cover a dial that is turning rather than one that sits still.
+ */
+
+@State(Scope.Thread)
+public class DialGeometryBenchmark {
+
+    private static final double FRAME_SECS = 1.0 / 60;
+    private static final double DECELERATION = 10;
+    private static final double FLING_VELOCITY = 6;
+
+    /**
+     * Share of the whole range the dial turns on each frame
+     */
+    private static final double SWEEP_PER_FRAME = 0.001;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int tickCount;
+
+    @Param({"1", "2", "3", "4"})
+    public int direction;
+
+    private DialGeometry geometry;
+    private double[] cos;
+    private double[] sin;
+    private double firstTheta;
+    private double lastTheta;
+    private double sweep;
+    private double theta;
+    private double velocity;
+
+    @Setup
+    public void setUp() {
+        geometry = new DialGeometry(direction);
+        geometry.setTicks(tickCount, Math.toRadians(3));
+        // the sample app's 200dp x 90dp dials at xxhdpi
+        boolean vertical = direction == DialGeometry.DIRECTION_LEFT
+                || direction == DialGeometry.DIRECTION_RIGHT;
+        geometry.layout(vertical ? 270 : 600, vertical ? 600 : 270, 150, 42);
+
+        int maxVisible = (int) Math.min(tickCount, 2 * Math.PI / geometry.getTickGapAngle() + 2);
+        cos = new double[maxVisible];
+        sin = new double[maxVisible];
+        firstTheta = geometry.thetaForIndex(0);
+        lastTheta = geometry.thetaForIndex(tickCount - 1);
+        sweep = 0;
+        theta = geometry.getInitialTheta();
+        velocity = FLING_VELOCITY;
+    }
+
+    private double nextTheta() {
+        sweep += SWEEP_PER_FRAME;
+        if (sweep >= 1) {
+            sweep -= 1;
+        }
+        return firstTheta + (lastTheta - firstTheta) * sweep;
+    }
+
+    @Benchmark
+    public int layoutVisibleTicks() {
+        double frameTheta = nextTheta();
+        return geometry.layoutTicks(frameTheta, geometry.firstVisibleTick(frameTheta),
+                geometry.lastVisibleTick(frameTheta), cos, sin);
+    }
+
+    @Benchmark
+    public int selectedIndex() {
+        return geometry.indexAtTheta(nextTheta());
+    }
+
+    @Benchmark
+    public double flingFrame() {
+        theta = geometry.clampTheta(theta + DialGeometry.flingDistance(velocity, DECELERATION, FRAME_SECS));
+        velocity = DialGeometry.flingVelocityAfter(velocity, DECELERATION, FRAME_SECS);
+        if (velocity == 0) {
+            // start the next fling back the other way so the dial keeps covering the range
+            velocity = theta > (firstTheta + lastTheta) / 2 ? -FLING_VELOCITY : FLING_VELOCITY;
+        }
+        return theta;
+    }
+}
@@ -0,0 +1,25 @@
+package com.moldedbits.dialpicker;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.widget.FrameLayout;
+
+/**
+ * Empty window the instrumentation tests add their dials to
+ */
+
+public class DialTestActivity extends Activity {
+
+    private FrameLayout container;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        container = new FrameLayout(this);
+        setContentView(container);
+    }
+
+    FrameLayout getContainer() {
+        return container;
+    }
+}
@@ -0,0 +1,149 @@
+package com.moldedbits.dialpicker;
+
+import android.app.Instrumentation;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import com.moldedbits.dialpicker.test.R;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks that a dial in motion lands where it was going and leaves nothing queued on the
+ * {@link android.view.Choreographer} when it is hidden or leaves the window, and that it can
+ * be animated before its first layout
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class DialViewLifecycleTest {
+
+    private static final int TARGET = 37;
+
+    /**
+     * Long enough that the animation is still running when the test interrupts it
+     */
+    private static final long LONG_ANIMATION_MS = 10000;
+
+    private static final long TIMEOUT_MS = 5000;
+
+    @Rule
+    public ActivityTestRule<DialTestActivity> activityRule =
+            new ActivityTestRule<>(DialTestActivity.class);
+
+    private Instrumentation instrumentation;
+    private DialView dial;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                DialTestActivity activity = activityRule.getActivity();
+                dial = (DialView) LayoutInflater.from(activity)
+                        .inflate(R.layout.dial_test, activity.getContainer(), false);
+            }
+        });
+    }
+
+    private void attach() {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                activityRule.getActivity().getContainer().addView(dial);
+            }
+        });
+        instrumentation.waitForIdleSync();
+    }
+
+    private void animateToTarget(final long durationMs) {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                dial.animateToValue(TARGET, durationMs, null);
+            }
+        });
+    }
+
+    private boolean hasPendingFrames() {
+        final boolean[] pending = new boolean[1];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                pending[0] = dial.hasPendingFrames();
+            }
+        });
+        return pending[0];
+    }
+
+    private String selectedValue() {
+        final String[] value = new String[1];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                value[0] = dial.getSelectedValue();
+            }
+        });
+        return value[0];
+    }
+
+    private void awaitRest() {
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        while (hasPendingFrames() && SystemClock.uptimeMillis() < deadline) {
+            SystemClock.sleep(16);
+        }
+    }
+
+    @Test
+    public void detachingMidAnimationLandsAndQueuesNothing() {
+        attach();
+        animateToTarget(LONG_ANIMATION_MS);
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                activityRule.getActivity().getContainer().removeView(dial);
+            }
+        });
+
+        assertFalse(hasPendingFrames());
+        assertEquals(String.valueOf(TARGET), selectedValue());
+        // a frame already in flight must not queue another one
+        SystemClock.sleep(100);
+        assertFalse(hasPendingFrames());
+    }
+
+    @Test
+    public void hidingMidAnimationLandsAndQueuesNothing() {
+        attach();
+        animateToTarget(LONG_ANIMATION_MS);
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                dial.setVisibility(View.GONE);
+            }
+        });
+
+        assertFalse(hasPendingFrames());
+        assertEquals(String.valueOf(TARGET), selectedValue());
+    }
+
+    @Test
+    public void animatingBeforeLayoutLandsOnTheTarget() {
+        animateToTarget(300);
+        attach();
+        awaitRest();
+
+        assertFalse(hasPendingFrames());
+        assertEquals(String.valueOf(TARGET), selectedValue());
+    }
+}
@@ -0,0 +1,27 @@
+package com.moldedbits.dialpicker;
+
+/**
+ * Supplies the ticks of a {@link DialView}. The dial only asks for the ticks it is about to
+ * draw or report, so an adapter can back very large or computed ranges without building
+ * any arrays up front.
+ */
+
+public interface DialAdapter {
+
+    /**
+     * @return number of ticks on the dial
+     */
+    int getCount();
+
+    /**
+     * @param index tick index, from 0 to {@link #getCount()} - 1
+     * @return text drawn next to the tick when it is a major one, also reported to listeners
+     */
+    CharSequence getLabel(int index);
+
+    /**
+     * @param index tick index, from 0 to {@link #getCount()} - 1
+     * @return true for a long, labelled tick, false for a short one
+     */
+    boolean isMajor(int index);
+}
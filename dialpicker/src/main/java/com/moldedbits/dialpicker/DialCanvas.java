@@ -0,0 +1,89 @@
+package com.moldedbits.dialpicker;
+
+/**
+ * Every draw call a frame of a dial makes, as issued by {@link DialFrame}. Kept free of
+ * android classes, so whole frames can be drawn off the device; {@link DialRenderer} issues
+ * them on a canvas with the paints of a {@link DialStyle}.
+ */
+
+interface DialCanvas {
+
+    /**
+     * @param arc whether this is the dashed arc over the dial rather than its filled face
+     */
+
+    void drawCircle(float cx, float cy, float radius, boolean arc);
+
+    /**
+     * @return count to hand to {@link #restoreToCount(int)}
+     */
+
+    int save();
+
+    void clipRect(int left, int top, int right, int bottom);
+
+    void restoreToCount(int saveCount);
+
+    /**
+     * @param points x0, y0, x1, y1 of each tick line, one after the other
+     * @param count  number of floats of points in use
+     * @param major  whether these are the major or the minor ticks
+     * @param detail opacity of the lines, from 0 (exclusive) to 1
+     */
+
+    void drawTickLines(float[] points, int count, boolean major, float detail);
+
+    /**
+     * @return width of the label drawn as text
+     */
+
+    float measureText(char[] label, int length);
+
+    /**
+     * @return height of the glyphs of the label, for placing it past its tick
+     */
+
+    float textHeight(char[] label, int length);
+
+    /**
+     * Draws a label as text, anchored on x as the text paint aligns it, with its baseline at y
+     *
+     * @param detail opacity of the label, from 0 (exclusive) to 1
+     */
+
+    void drawText(char[] label, int length, float x, float y, float detail);
+
+    /**
+     * Copies a glyph out of the glyph atlas, see {@link GlyphLayout}
+     *
+     * @param glyph index of the glyph in {@link GlyphLayout#GLYPHS}
+     */
+
+    void drawGlyph(int glyph, float left, float top, float detail);
+
+    /**
+     * @return whether recorded faces can be drawn on this canvas at all
+     */
+
+    boolean canDrawFaces();
+
+    /**
+     * Sends every draw call up to {@link #endFace()} into the recorded face of the given tick
+     * kind instead, on a square of size pixels, moved by dx, dy
+     */
+
+    void beginFace(boolean minor, int size, float dx, float dy);
+
+    void endFace();
+
+    /**
+     * Draws the recorded faces with the canvas rotated by degrees about px, py and then
+     * translated by dx, dy
+     *
+     * @param minor whether to draw the face of the minor ticks
+     * @param major whether to draw the face of the major ticks
+     */
+
+    void drawFaces(boolean minor, boolean major, float degrees, float px, float py,
+                   float dx, float dy);
+}
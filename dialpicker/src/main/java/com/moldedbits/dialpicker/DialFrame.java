@@ -0,0 +1,378 @@
+package com.moldedbits.dialpicker;
+
+import static java.lang.Math.PI;
+
+/**
+ * Draws a whole frame of a dial laid out by a {@link DialGeometry} onto a {@link DialCanvas}:
+ * the face and arc, the tick lines and labels clipped to the tick band, and in cached mode the
+ * recorded faces. Keeps the labels of its {@link DialAdapter} formatted between frames. Has no
+ * android dependencies, so the draw calls of a frame can be checked on a plain JVM; an
+ * instance is only ever used from one thread.
+ */
+
+final class DialFrame {
+
+    /**
+     * Smallest and largest number of labels kept formatted between frames
+     */
+    private static final int MIN_LABEL_CACHE_SIZE = 16;
+    private static final int MAX_LABEL_CACHE_SIZE = 1024;
+
+    private DialGeometry geometry;
+    private DialAdapter adapter;
+    private LabelCache labelCache;
+
+    /**
+     * Glyphs labels are drawn from, or null to draw them as text
+     */
+    private GlyphLayout glyphs;
+
+    /**
+     * Whether the tick lines are drawn from faces recorded around the visible arc
+     */
+    private boolean cached;
+    private boolean faceRecorded;
+    private double faceTheta;
+    private double faceSlack;
+    private int faceSize;
+
+    /**
+     * Part of the view the ticks and labels are clipped to, empty for no clip
+     */
+    private int bandLeft;
+    private int bandTop;
+    private int bandRight;
+    private int bandBottom;
+
+    /**
+     * Unit directions of the ticks laid out for the current frame, grown as needed
+     */
+    private double[] tickCos = new double[0];
+    private double[] tickSin = new double[0];
+
+    /**
+     * Line segments of the major and minor ticks of a frame, sent with one call each
+     */
+    private float[] majorTickLines = new float[0];
+    private float[] minorTickLines = new float[0];
+
+    private int ticksDrawn;
+    private int labelsDrawn;
+    private int maxLabelChars;
+
+    DialFrame(DialAdapter adapter) {
+        this.adapter = adapter;
+        labelCache = new LabelCache(MIN_LABEL_CACHE_SIZE, adapter);
+    }
+
+    void setGeometry(DialGeometry geometry) {
+        this.geometry = geometry;
+        faceRecorded = false;
+    }
+
+    void setAdapter(DialAdapter adapter) {
+        this.adapter = adapter;
+        labelCache = new LabelCache(labelCache.capacity(), adapter);
+        faceRecorded = false;
+    }
+
+    /**
+     * @param glyphs glyphs to draw the labels from where they have all the chars, or null to
+     *               draw every label as text
+     */
+
+    void setGlyphs(GlyphLayout glyphs) {
+        if (this.glyphs != glyphs) {
+            this.glyphs = glyphs;
+            // cached widths were measured for the other glyphs
+            labelCache.clear();
+        }
+    }
+
+    /**
+     * @param cached whether to draw the tick lines from recorded faces where the canvas can
+     */
+
+    void setCached(boolean cached) {
+        this.cached = cached;
+        faceRecorded = false;
+    }
+
+    /**
+     * Records the faces again before they are next drawn, for when the ticks or the size of
+     * the dial changed
+     */
+
+    void invalidateFace() {
+        faceRecorded = false;
+    }
+
+    /**
+     * Clips the ticks and labels to the given part of the view; an empty one draws them all
+     */
+
+    void setBand(int left, int top, int right, int bottom) {
+        bandLeft = left;
+        bandTop = top;
+        bandRight = right;
+        bandBottom = bottom;
+    }
+
+    void resetCounters() {
+        ticksDrawn = 0;
+        labelsDrawn = 0;
+    }
+
+    /**
+     * @return ticks laid out since {@link #resetCounters()}
+     */
+
+    int getTicksDrawn() {
+        return ticksDrawn;
+    }
+
+    /**
+     * @return labels laid out since {@link #resetCounters()}
+     */
+
+    int getLabelsDrawn() {
+        return labelsDrawn;
+    }
+
+    /**
+     * @return length of the longest label laid out so far
+     */
+
+    int getMaxLabelChars() {
+        return maxLabelChars;
+    }
+
+    /**
+     * Sizes the label cache to hold every label of the visible arc twice over, so a slow
+     * rotation keeps hitting the cache while a long fling only recycles the oldest labels
+     */
+
+    void resizeLabelCache(int lineInterval) {
+        double tickCount = geometry.getTickCount();
+        double tickGapAngle = geometry.getTickGapAngle();
+        double visibleArc = geometry.getVisibleArcEnd() - geometry.getVisibleArcStart();
+        int visibleTicks = tickGapAngle > 0
+                ? (int) Math.min(tickCount, visibleArc / tickGapAngle + 1)
+                : (int) tickCount;
+        int visibleLabels = visibleTicks / Math.max(lineInterval, 1) + 1;
+        int capacity = Math.max(MIN_LABEL_CACHE_SIZE, Math.min(MAX_LABEL_CACHE_SIZE, visibleLabels * 2));
+        if (capacity != labelCache.capacity()) {
+            labelCache = new LabelCache(capacity, adapter);
+        }
+    }
+
+    /**
+     * @param index tick index whose value is reported
+     * @return the value zero padded to two digits, cached along with the tick label
+     */
+
+    String formatValue(int index) {
+        return labelCache.value(labelCache.obtain(index));
+    }
+
+    /**
+     * Draws the dial at theta: its face and dashed arc, then the visible ticks and labels
+     * clipped to the tick band. Labels are drawn with the detail of the minor ticks.
+     *
+     * @param canvas      to draw the frame on
+     * @param theta       rotation of the dial
+     * @param minorDetail opacity of the minor tick lines, from 0 (not drawn) to 1
+     * @param majorDetail opacity of the major tick lines, from 0 (not drawn) to 1
+     */
+
+    void draw(DialCanvas canvas, double theta, float minorDetail, float majorDetail) {
+        double firstTick = geometry.firstVisibleTick(theta);
+        double lastTick = geometry.lastVisibleTick(theta);
+        int centerX = geometry.getCenterX();
+        int centerY = geometry.getCenterY();
+        int radius = geometry.getRadius();
+
+        canvas.drawCircle(centerX, centerY, radius, false);
+        canvas.drawCircle(centerX, centerY, radius, true);
+
+        int saveCount = canvas.save();
+        if (bandLeft < bandRight && bandTop < bandBottom) {
+            canvas.clipRect(bandLeft, bandTop, bandRight, bandBottom);
+        }
+        if (cached && canvas.canDrawFaces()) {
+            // the faces hold ticks at full detail; ticks fading in or out are drawn per
+            // frame with their detail instead
+            boolean cachedMinor = minorDetail >= 1;
+            boolean cachedMajor = majorDetail >= 1;
+            if (cachedMinor || cachedMajor) {
+                drawCachedFace(canvas, theta, cachedMinor, cachedMajor);
+            }
+            drawTicks(canvas, theta, firstTick, lastTick, cachedMinor ? 0 : minorDetail,
+                    cachedMajor ? 0 : majorDetail, minorDetail);
+        } else {
+            drawTicks(canvas, theta, firstTick, lastTick, minorDetail, majorDetail, minorDetail);
+        }
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * Draws the recorded faces rotated to theta, recording them again first when they are
+     * stale or the dial has turned past the ticks they hold
+     *
+     * @param minor whether to draw the minor tick lines
+     * @param major whether to draw the major tick lines
+     */
+
+    private void drawCachedFace(DialCanvas canvas, double theta, boolean minor, boolean major) {
+        if (!faceRecorded || Math.abs(theta - faceTheta) > faceSlack) {
+            recordFace(canvas, theta);
+        }
+        float half = faceSize / 2f;
+        int centerX = geometry.getCenterX();
+        int centerY = geometry.getCenterY();
+        canvas.drawFaces(minor, major, (float) Math.toDegrees(theta - faceTheta), centerX, centerY,
+                centerX - half, centerY - half);
+    }
+
+    /**
+     * Records the minor and the major tick lines around the visible arc into a face each.
+     * Ticks are recorded for one extra visible arc on both sides, capped to a single turn,
+     * so small rotations only need a canvas transform.
+     */
+
+    private void recordFace(DialCanvas canvas, double theta) {
+        double span = geometry.getVisibleArcEnd() - geometry.getVisibleArcStart();
+        faceSlack = Math.max(0, Math.min(span, (2 * PI - span) / 2));
+        faceTheta = theta;
+        faceSize = 2 * (geometry.getRadius() + 30 + 1);
+        float half = faceSize / 2f;
+        float dx = half - geometry.getCenterX();
+        float dy = half - geometry.getCenterY();
+
+        double arcStart = geometry.getVisibleArcStart() - faceSlack;
+        double arcEnd = geometry.getVisibleArcEnd() + faceSlack;
+        double firstTick = geometry.firstTickInArc(faceTheta, arcStart, arcEnd);
+        double lastTick = geometry.lastTickInArc(faceTheta, arcStart, arcEnd);
+        canvas.beginFace(true, faceSize, dx, dy);
+        drawTicks(canvas, faceTheta, firstTick, lastTick, 1, 0, 0);
+        canvas.endFace();
+        canvas.beginFace(false, faceSize, dx, dy);
+        drawTicks(canvas, faceTheta, firstTick, lastTick, 0, 1, 0);
+        canvas.endFace();
+        faceRecorded = true;
+    }
+
+    /**
+     * @param canvas      receives the labels, then one batch of major and one of minor lines
+     * @param theta       rotation of the dial to lay the ticks out at
+     * @param firstTick   index of the first tick to draw
+     * @param lastTick    index of the last tick to draw
+     * @param minorDetail opacity of the minor tick lines, from 0 (not drawn) to 1
+     * @param majorDetail opacity of the major tick lines, from 0 (not drawn) to 1
+     * @param labelDetail opacity of the labels, from 0 (not drawn) to 1
+     */
+
+    private void drawTicks(DialCanvas canvas, double theta, double firstTick, double lastTick,
+                           float minorDetail, float majorDetail, float labelDetail) {
+        int count = (int) (lastTick - firstTick) + 1;
+        if (count > tickCos.length) {
+            // sized for the whole visible arc, so turning the dial never grows them again
+            int capacity = Math.max(count, geometry.maxVisibleTicks());
+            tickCos = new double[capacity];
+            tickSin = new double[capacity];
+            majorTickLines = new float[capacity * 4];
+            minorTickLines = new float[capacity * 4];
+        }
+        count = geometry.layoutTicks(theta, firstTick, lastTick, tickCos, tickSin);
+        int centerX = geometry.getCenterX();
+        int centerY = geometry.getCenterY();
+        int radius = geometry.getRadius();
+        int majorFloats = 0;
+        int minorFloats = 0;
+
+        for (int tick = 0; tick < count; tick++) {
+            int i = (int) firstTick + tick;
+            double cos = tickCos[tick];
+            double sin = tickSin[tick];
+
+            int lineHeight;
+            if (adapter.isMajor(i)) {
+                lineHeight = 30;
+            } else {
+                lineHeight = 20;
+            }
+
+            float startX = (float) (((radius + 10) * cos) + centerX);
+            float startY = (float) (((radius + 10) * sin) + centerY);
+
+            float endX = (float) (((radius + lineHeight) * cos) + centerX);
+            float endY = (float) (((radius + lineHeight) * sin) + centerY);
+
+            float textPointX = (float) (((radius + lineHeight + 10) * cos) + centerX);
+            float textPointY = (float) (((radius + lineHeight + 10) * sin) + centerY);
+
+            if (labelDetail > 0 && lineHeight == 30) {
+                int slot = labelCache.obtain(i);
+                maxLabelChars = Math.max(maxLabelChars, labelCache.length(slot));
+                addingTextValuesToDial(canvas, cos, sin, slot, textPointX, textPointY, labelDetail);
+                labelsDrawn++;
+            }
+
+            if ((lineHeight == 30 ? majorDetail : minorDetail) > 0) {
+                float[] lines = lineHeight == 30 ? majorTickLines : minorTickLines;
+                int offset = lineHeight == 30 ? majorFloats : minorFloats;
+                lines[offset] = startX;
+                lines[offset + 1] = startY;
+                lines[offset + 2] = endX;
+                lines[offset + 3] = endY;
+                if (lineHeight == 30) {
+                    majorFloats += 4;
+                } else {
+                    minorFloats += 4;
+                }
+            }
+        }
+
+        if (majorFloats > 0) {
+            canvas.drawTickLines(majorTickLines, majorFloats, true, majorDetail);
+        }
+        if (minorFloats > 0) {
+            canvas.drawTickLines(minorTickLines, minorFloats, false, minorDetail);
+        }
+        ticksDrawn += (majorFloats + minorFloats) / 4;
+    }
+
+    /**
+     * Places a label just past its tick, pushed out along the tick until its box clears the
+     * text point, which works the same for every orientation of the dial
+     *
+     * @param canvas receives the label
+     * @param cos    cosine of the tick angle
+     * @param sin    sine of the tick angle
+     * @param slot   label cache slot holding the tick label to draw
+     * @param startX x of the point the label hangs off
+     * @param startY y of the point the label hangs off
+     * @param detail opacity of the label
+     */
+
+    private void addingTextValuesToDial(DialCanvas canvas, double cos, double sin, int slot,
+                                        float startX, float startY, float detail) {
+        char[] label = labelCache.chars(slot);
+        int length = labelCache.length(slot);
+        boolean fromGlyphs = glyphs != null && glyphs.canDraw(label, length);
+        float width = labelCache.width(slot);
+        if (Float.isNaN(width)) {
+            width = fromGlyphs ? glyphs.measure(label, length) : canvas.measureText(label, length);
+            labelCache.setWidth(slot, width);
+        }
+        float halfHeight = canvas.textHeight(label, length) / 2f;
+        float push = (float) (width / 2 * Math.abs(cos) + halfHeight * Math.abs(sin));
+        float x = startX + (float) (push * cos);
+        float y = startY + (float) (push * sin) + halfHeight;
+        if (fromGlyphs) {
+            glyphs.draw(canvas, label, length, width, x, y, detail);
+        } else {
+            canvas.drawText(label, length, x, y, detail);
+        }
+    }
+}
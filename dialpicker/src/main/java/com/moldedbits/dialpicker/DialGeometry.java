@@ -0,0 +1,455 @@
+package com.moldedbits.dialpicker;
+
+import static java.lang.Math.PI;
+
+/**
+ * Angle maths behind {@link DialView}: where the dial sits, which ticks are visible and where
+ * they go, which tick is selected, how touches turn into rotation and how a fling moves.
+ * It has no android dependencies so it can be benchmarked and tested on a plain JVM.
+ */
+
+public final class DialGeometry {
+
+    public static final int DIRECTION_LEFT = 1;
+    public static final int DIRECTION_TOP = 2;
+    public static final int DIRECTION_RIGHT = 3;
+    public static final int DIRECTION_BOTTOM = 4;
+
+    private static final int CENTER_OFFSET = 40;
+
+    private final DialOrientation orientation;
+    private final double initialTheta;
+    private final int tickSense;
+
+    private double tickCount;
+    private double tickGapAngle;
+    private double lowestTheta;
+    private double highestTheta;
+    private int centerX;
+    private int centerY;
+    private int radius;
+
+    /**
+     * Angular window, in absolute radians, that the view bounds cover as seen from the
+     * dial center. Only ticks falling inside it need to be laid out.
+     */
+    private double visibleArcStart;
+    private double visibleArcEnd;
+
+    /**
+     * cos/sin of the signed angle between two neighbouring ticks, used to rotate the
+     * unit vector from one tick to the next instead of calling the trig functions per tick
+     */
+    private double tickStepCos;
+    private double tickStepSin;
+
+    /**
+     * @param direction one of the DIRECTION constants, matching the dialDirection attribute
+     */
+
+    public DialGeometry(int direction) {
+        this(DialOrientation.forDirection(direction));
+    }
+
+    /**
+     * @param orientation which way the dial faces, including angles other than the four sides
+     */
+
+    public DialGeometry(DialOrientation orientation) {
+        this.orientation = orientation;
+        initialTheta = orientation.getFacingAngle();
+        tickSense = orientation.getTickSense();
+    }
+
+    /**
+     * @param tickCount    number of ticks on the dial
+     * @param tickGapAngle angle between two neighbouring ticks, in radians
+     */
+
+    public void setTicks(int tickCount, double tickGapAngle) {
+        this.tickCount = tickCount;
+        this.tickGapAngle = tickGapAngle;
+    }
+
+    /**
+     * Places the dial center and radius for the given view size and works out the derived
+     * angles. Has to be called again whenever the size or the ticks change.
+     *
+     * @param width         measured width of the view
+     * @param height        measured height of the view
+     * @param centerPadding gap between the view edge and the dial circle
+     * @param textSize      size of the labels, used to keep edge labels in the visible arc
+     */
+
+    public void layout(int width, int height, int centerPadding, int textSize) {
+        double endTheta = initialTheta - tickSense * (tickCount - 1) * tickGapAngle;
+        lowestTheta = Math.min(initialTheta, endTheta);
+        highestTheta = Math.max(initialTheta, endTheta);
+
+        // the view extends depth along the facing angle and span across it, and the dial
+        // center sits just past the edge the dial turns its back to
+        double cos = orientation.getFacingCos();
+        double sin = orientation.getFacingSin();
+        double depth = (Math.abs(cos) * width + Math.abs(sin) * height) / 2;
+        double span = (Math.abs(sin) * width + Math.abs(cos) * height) / 2;
+        centerX = (int) Math.floor(width / 2.0 - cos * (depth + CENTER_OFFSET));
+        centerY = (int) Math.floor(height / 2.0 - sin * (depth + CENTER_OFFSET));
+        radius = (int) span - centerPadding;
+        computeVisibleArc(width, height, textSize);
+
+        double tickStep = tickSense * tickGapAngle;
+        tickStepCos = Math.cos(tickStep);
+        tickStepSin = Math.sin(tickStep);
+    }
+
+    /**
+     * Works out the angular window of the view as seen from the dial center. The center
+     * always sits outside the view on the dial side, so the window never wraps around.
+     */
+
+    private void computeVisibleArc(int width, int height, int textSize) {
+        double facing = orientation.getFacingAngle();
+        double start = Double.MAX_VALUE;
+        double end = -Double.MAX_VALUE;
+        for (int corner = 0; corner < 4; corner++) {
+            int x = (corner & 1) == 0 ? 0 : width;
+            int y = (corner & 2) == 0 ? 0 : height;
+            double angle = Math.atan2(y - centerY, x - centerX) - facing;
+            while (angle > PI) {
+                angle -= 2 * PI;
+            }
+            while (angle <= -PI) {
+                angle += 2 * PI;
+            }
+            start = Math.min(start, angle);
+            end = Math.max(end, angle);
+        }
+        // labels hang off their tick, so keep ticks whose text may still reach the bounds
+        double padding = tickGapAngle + Math.atan2(textSize * 2, Math.max(radius, 1));
+        visibleArcStart = facing + start - padding;
+        visibleArcEnd = facing + end + padding;
+    }
+
+    public DialOrientation getOrientation() {
+        return orientation;
+    }
+
+    public double getInitialTheta() {
+        return initialTheta;
+    }
+
+    public double getTickGapAngle() {
+        return tickGapAngle;
+    }
+
+    public int getTickCount() {
+        return (int) tickCount;
+    }
+
+    public int getCenterX() {
+        return centerX;
+    }
+
+    public int getCenterY() {
+        return centerY;
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    public double getVisibleArcStart() {
+        return visibleArcStart;
+    }
+
+    public double getVisibleArcEnd() {
+        return visibleArcEnd;
+    }
+
+    /**
+     * Bounding box of the ring between two radii over the visible arc, clipped to the view.
+     * Everything drawn on the ticks lies in it, whatever the rotation.
+     *
+     * @param out receives the left, top, right and bottom edges
+     */
+
+    public void ringBounds(double innerRadius, double outerRadius, int width, int height, int[] out) {
+        double left = Double.MAX_VALUE;
+        double top = Double.MAX_VALUE;
+        double right = -Double.MAX_VALUE;
+        double bottom = -Double.MAX_VALUE;
+        for (int end = 0; end < 2; end++) {
+            double angle = end == 0 ? visibleArcStart : visibleArcEnd;
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+            for (int ring = 0; ring < 2; ring++) {
+                double r = ring == 0 ? innerRadius : outerRadius;
+                left = Math.min(left, centerX + r * cos);
+                right = Math.max(right, centerX + r * cos);
+                top = Math.min(top, centerY + r * sin);
+                bottom = Math.max(bottom, centerY + r * sin);
+            }
+        }
+        // the outer edge bulges furthest where the arc crosses an axis
+        for (double axis = Math.ceil(visibleArcStart / (PI / 2)) * (PI / 2); axis <= visibleArcEnd; axis += PI / 2) {
+            double x = centerX + outerRadius * Math.cos(axis);
+            double y = centerY + outerRadius * Math.sin(axis);
+            left = Math.min(left, x);
+            right = Math.max(right, x);
+            top = Math.min(top, y);
+            bottom = Math.max(bottom, y);
+        }
+        out[0] = (int) Math.max(0, Math.floor(left));
+        out[1] = (int) Math.max(0, Math.floor(top));
+        out[2] = (int) Math.min(width, Math.ceil(right));
+        out[3] = (int) Math.min(height, Math.ceil(bottom));
+    }
+
+    /**
+     * @return true when the dial can turn to theta without hitting either end
+     */
+
+    public boolean isWithinRange(double theta) {
+        return theta >= lowestTheta && theta <= highestTheta;
+    }
+
+    /**
+     * @return theta pulled back between the rotations of the first and the last tick
+     */
+
+    public double clampTheta(double theta) {
+        return Math.max(lowestTheta, Math.min(highestTheta, theta));
+    }
+
+    /**
+     * @param theta rotation of the dial
+     * @param index tick index
+     * @return angle at which that tick is drawn
+     */
+
+    public double tickTheta(double theta, double index) {
+        return theta + tickSense * index * tickGapAngle;
+    }
+
+    /**
+     * @return most ticks {@link #firstVisibleTick(double)} to {@link #lastVisibleTick(double)}
+     * can span at any rotation, so per-frame buffers can be sized once per layout
+     */
+
+    public int maxVisibleTicks() {
+        if (tickGapAngle <= 0) {
+            return (int) tickCount;
+        }
+        return (int) Math.min(tickCount, Math.floor((visibleArcEnd - visibleArcStart) / tickGapAngle) + 1);
+    }
+
+    public double firstVisibleTick(double theta) {
+        return firstTickInArc(theta, visibleArcStart, visibleArcEnd);
+    }
+
+    public double lastVisibleTick(double theta) {
+        return lastTickInArc(theta, visibleArcStart, visibleArcEnd);
+    }
+
+    /**
+     * @return index of the first tick whose angle falls inside the given arc
+     */
+
+    public double firstTickInArc(double theta, double arcStart, double arcEnd) {
+        if (tickGapAngle <= 0) {
+            return 0;
+        }
+        double offset = Math.min(tickSense * (arcStart - theta), tickSense * (arcEnd - theta));
+        return Math.max(0, Math.ceil(offset / tickGapAngle));
+    }
+
+    /**
+     * @return index of the last tick whose angle falls inside the given arc
+     */
+
+    public double lastTickInArc(double theta, double arcStart, double arcEnd) {
+        if (tickGapAngle <= 0) {
+            return tickCount - 1;
+        }
+        double offset = Math.max(tickSense * (arcStart - theta), tickSense * (arcEnd - theta));
+        return Math.min(tickCount - 1, Math.floor(offset / tickGapAngle));
+    }
+
+    /**
+     * Writes the unit direction of every tick from firstTick to lastTick. Only the first
+     * tick costs a cos/sin pair, the rest are rotated from it with the angle-addition formulas.
+     *
+     * @param cos receives the cosine of each tick angle, must hold all the ticks
+     * @param sin receives the sine of each tick angle, must hold all the ticks
+     * @return number of ticks written
+     */
+
+    public int layoutTicks(double theta, double firstTick, double lastTick, double[] cos, double[] sin) {
+        int count = (int) (lastTick - firstTick) + 1;
+        if (count <= 0) {
+            return 0;
+        }
+        double seedTheta = tickTheta(theta, firstTick);
+        double c = Math.cos(seedTheta);
+        double s = Math.sin(seedTheta);
+        for (int i = 0; i < count; i++) {
+            cos[i] = c;
+            sin[i] = s;
+            double nextCos = c * tickStepCos - s * tickStepSin;
+            s = s * tickStepCos + c * tickStepSin;
+            c = nextCos;
+        }
+        return count;
+    }
+
+    /**
+     * @param theta rotation of the dial
+     * @return index of the tick closest to the selection angle at that rotation
+     */
+
+    public int indexAtTheta(double theta) {
+        int index = (int) Math.round(tickSense * (initialTheta - theta) / tickGapAngle);
+        return Math.max(0, Math.min((int) tickCount - 1, index));
+    }
+
+    /**
+     * @param index tick index
+     * @return rotation of the dial at which that tick faces the selection angle
+     */
+
+    public double thetaForIndex(int index) {
+        return initialTheta - tickSense * index * tickGapAngle;
+    }
+
+    /**
+     * @param theta rotation of the dial, possibly past either end
+     * @return how many times over the ticks theta lies past the last tick, negative before
+     * the first; a tick gap past the last tick comes back round to the first
+     */
+
+    public int wrapTurns(double theta) {
+        if (tickGapAngle <= 0 || tickCount < 1) {
+            return 0;
+        }
+        double position = tickSense * (initialTheta - theta) / tickGapAngle;
+        return (int) Math.floor((position + 0.5) / tickCount);
+    }
+
+    /**
+     * @return 1 when theta lies past the last tick, -1 when before the first, otherwise 0
+     */
+
+    public int endPassed(double theta) {
+        if (isWithinRange(theta)) {
+            return 0;
+        }
+        return tickSense * (initialTheta - theta) > 0 ? 1 : -1;
+    }
+
+    /**
+     * @return theta moved back by whole turns of the ticks, as counted by {@link #wrapTurns(double)}
+     */
+
+    public double wrapTheta(double theta, int turns) {
+        return theta + tickSense * turns * tickCount * tickGapAngle;
+    }
+
+    /**
+     * @return x of a touch point relative to the dial center, as used for touch angles
+     */
+
+    public float touchX(float eventX) {
+        return eventX - centerX;
+    }
+
+    /**
+     * @return y of a touch point relative to the dial center, pointing up
+     */
+
+    public float touchY(float eventY) {
+        return centerY - eventY;
+    }
+
+    /**
+     * Rotation produced by the finger moving between two points given by
+     * {@link #touchX(float)} and {@link #touchY(float)}. The angle between the two vectors
+     * comes from their cross and dot products, so it takes a single atan2 and never jumps
+     * by a full turn when the finger crosses the negative x axis.
+     */
+
+    public double touchDelta(float lastX, float lastY, float x, float y) {
+        double cross = (double) lastX * y - (double) lastY * x;
+        double dot = (double) lastX * x + (double) lastY * y;
+        // touch y points up while the dial angles grow downwards, hence the sign
+        return -Math.atan2(cross, dot);
+    }
+
+    /**
+     * @param x         touch point given by {@link #touchX(float)}
+     * @param y         touch point given by {@link #touchY(float)}
+     * @param xVelocity horizontal velocity of the finger on screen
+     * @param yVelocity vertical velocity of the finger on screen
+     * @return rate at which the finger turns the dial about its center, in radians per unit
+     * of time of the velocities, with the same sign as {@link #touchDelta(float, float, float, float)}
+     */
+
+    public double touchAngularVelocity(float x, float y, float xVelocity, float yVelocity) {
+        double radiusSquared = (double) x * x + (double) y * y;
+        if (radiusSquared < 1) {
+            return 0;
+        }
+        // the cross product of touchDelta for a small step, with screen y flipped to touch y
+        return -((double) x * -yVelocity - (double) y * xVelocity) / radiusSquared;
+    }
+
+    /**
+     * @param xVelocity horizontal velocity of the finger when it lifts
+     * @param yVelocity vertical velocity of the finger when it lifts
+     * @return angular velocity the fling starts with
+     */
+
+    public float flingVelocity(float xVelocity, float yVelocity) {
+        // the part of the finger velocity along the way the selected tick moves as theta grows
+        return (float) (yVelocity * orientation.getFacingCos() - xVelocity * orientation.getFacingSin());
+    }
+
+    /**
+     * @return seconds a fling starting at velocity takes to stop
+     */
+
+    public static double flingStopSecs(double velocity, double deceleration) {
+        return Math.abs(velocity) / deceleration;
+    }
+
+    /**
+     * Rotation covered by a constant deceleration fling over a step. The fling stops part
+     * way through the step if it runs out of velocity, so the result does not depend on
+     * how the fling is split into steps.
+     */
+
+    public static double flingDistance(double velocity, double deceleration, double secs) {
+        double stepSecs = Math.min(secs, flingStopSecs(velocity, deceleration));
+        return velocity * stepSecs - Math.signum(velocity) * deceleration * stepSecs * stepSecs / 2;
+    }
+
+    /**
+     * @return velocity left after a constant deceleration fling step, zero once it stopped
+     */
+
+    public static double flingVelocityAfter(double velocity, double deceleration, double secs) {
+        if (secs >= flingStopSecs(velocity, deceleration)) {
+            return 0;
+        }
+        return velocity - Math.signum(velocity) * deceleration * secs;
+    }
+
+    /**
+     * @return index of the tick a fling from theta at velocity comes to rest on, once
+     * snapped to the nearest tick and clamped to the ends of the dial
+     */
+
+    public int flingTargetIndex(double theta, double velocity, double deceleration) {
+        double stopDistance = Math.signum(velocity) * velocity * velocity / (2 * deceleration);
+        return indexAtTheta(theta + stopDistance);
+    }
+}
@@ -0,0 +1,226 @@
+package com.moldedbits.dialpicker;
+
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drives several {@link DialView}s shown together, like hours, minutes and seconds. Every
+ * fling and animation of the members is stepped from one frame callback, a dial linked to a
+ * larger one carries its turns over to it, and the selected values of all members are
+ * reported together once per frame. Like the dials, a group is only used on the main thread.
+ */
+
+public final class DialGroup {
+
+    private final List<DialView> members = new ArrayList<>();
+
+    /**
+     * Larger dial each linked dial carries its turns over to
+     */
+    private final Map<DialView, DialView> carries = new HashMap<>();
+
+    private OnDialGroupChangeListener onDialGroupChangeListener;
+    private boolean frameScheduled;
+    private boolean changed;
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            frameScheduled = false;
+            for (int i = 0; i < members.size(); i++) {
+                members.get(i).doGroupFrame(frameTimeNanos);
+            }
+            if (changed) {
+                changed = false;
+                deliverSnapshot();
+            }
+        }
+    };
+
+    /**
+     * @param dial dial to drive from now on; its order of adding is its position in the
+     *             snapshots. Any fling or animation it is running is stopped.
+     */
+
+    public void add(@NonNull DialView dial) {
+        if (members.contains(dial)) {
+            return;
+        }
+        members.add(dial);
+        dial.setGroup(this);
+        onMemberChanged();
+    }
+
+    /**
+     * Lets the dial drive itself again and drops the links to and from it
+     */
+
+    public void remove(@NonNull DialView dial) {
+        if (!members.remove(dial)) {
+            return;
+        }
+        dial.setGroup(null);
+        carries.remove(dial);
+        carries.values().remove(dial);
+        onMemberChanged();
+    }
+
+    /**
+     * Links two members, so turning the smaller dial past its last tick brings it back round
+     * to its first and moves the larger one a tick on, and the other way round before its
+     * first tick. Chains of links carry on further, as seconds to minutes to hours. A dial
+     * whose larger one has no tick left to move to stops at its end as usual.
+     *
+     * @param smaller dial that wraps round
+     * @param larger  dial moved one tick per turn of the smaller one, or null to unlink
+     */
+
+    public void link(@NonNull DialView smaller, DialView larger) {
+        if (!members.contains(smaller) || (larger != null && !members.contains(larger))) {
+            throw new IllegalArgumentException("Only dials added to the group can be linked");
+        }
+        if (larger == null) {
+            carries.remove(smaller);
+            return;
+        }
+        for (DialView dial = larger; dial != null; dial = carries.get(dial)) {
+            if (dial == smaller) {
+                throw new IllegalArgumentException("Links cannot loop back to the same dial");
+            }
+        }
+        carries.put(smaller, larger);
+    }
+
+    /**
+     * @param listener told once per frame when the selected tick of any member changed
+     */
+
+    public void setOnDialGroupChangeListener(OnDialGroupChangeListener listener) {
+        this.onDialGroupChangeListener = listener;
+    }
+
+    /**
+     * Called by a member when it wants a frame of its fling or animation stepped
+     */
+
+    void scheduleFrame() {
+        if (!frameScheduled) {
+            frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * Called by a member when its selected tick changed, to be reported with the next frame
+     */
+
+    void onMemberChanged() {
+        changed = true;
+        if (onDialGroupChangeListener != null) {
+            scheduleFrame();
+        }
+    }
+
+    /**
+     * Moves the dial the given dial is linked to by a tick per turn, carrying on down the
+     * chain of links when that one wraps round as well
+     *
+     * @param smaller dial that turned past one of its ends
+     * @param turns   turns past the last tick, negative before the first
+     * @return false when there was nothing to carry to, or no tick left to move to, in which
+     * case nothing was moved. A fling or animation of the larger dial is not interrupted.
+     */
+
+    boolean carry(DialView smaller, int turns) {
+        return carry(smaller, turns, true);
+    }
+
+    /**
+     * @return whether {@link #carry(DialView, int)} would move the larger dials, without
+     * moving them
+     */
+
+    boolean canCarry(DialView smaller, int turns) {
+        return carry(smaller, turns, false);
+    }
+
+    private boolean carry(DialView smaller, int turns, boolean move) {
+        DialView larger = carries.get(smaller);
+        if (larger == null || larger.getSelectedIndex() < 0) {
+            return false;
+        }
+        int count = larger.getAdapter().getCount();
+        int index = larger.getSelectedIndex() + turns;
+        int wraps = (int) Math.floor((double) index / count);
+        if (wraps != 0) {
+            if (!carry(larger, wraps, move)) {
+                return false;
+            }
+            index -= wraps * count;
+        }
+        if (move) {
+            larger.shiftTicks(index - larger.getSelectedIndex());
+        }
+        return true;
+    }
+
+    private void deliverSnapshot() {
+        if (onDialGroupChangeListener == null) {
+            return;
+        }
+        int[] indexes = new int[members.size()];
+        String[] values = new String[members.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = members.get(i).getSelectedIndex();
+            values[i] = members.get(i).getSelectedValue();
+        }
+        onDialGroupChangeListener.onDialGroupChanged(new Snapshot(indexes, values));
+    }
+
+    /**
+     * Selected ticks of all members as they stood at the end of one frame, in the order the
+     * members were added
+     */
+
+    public static final class Snapshot {
+        private final int[] indexes;
+        private final String[] values;
+
+        Snapshot(int[] indexes, String[] values) {
+            this.indexes = indexes;
+            this.values = values;
+        }
+
+        public int size() {
+            return indexes.length;
+        }
+
+        /**
+         * @return selected index of the member, or -1 before it has been measured
+         */
+
+        public int getIndex(int member) {
+            return indexes[member];
+        }
+
+        /**
+         * @return selected value of the member, or null before it has been measured
+         */
+
+        public String getValue(int member) {
+            return values[member];
+        }
+    }
+
+    public interface OnDialGroupChangeListener {
+        /**
+         * @param snapshot selected ticks of every member at the end of the frame
+         */
+        void onDialGroupChanged(DialGroup.Snapshot snapshot);
+    }
+}
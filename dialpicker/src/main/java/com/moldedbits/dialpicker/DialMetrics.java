@@ -0,0 +1,179 @@
+package com.moldedbits.dialpicker;
+
+/**
+ * Frame timing collected by a {@link DialView} once handed to
+ * {@link DialView#setMetrics(DialMetrics)}. Draw times go into a fixed histogram and every
+ * other figure is a plain counter, so recording a frame never allocates.
+ * It is written on the main thread and should be read there too.
+ */
+
+public final class DialMetrics {
+
+    /**
+     * Width of one draw time histogram bucket
+     */
+    public static final long BUCKET_NANOS = 250000L;
+
+    /**
+     * Number of buckets; the last one also holds every frame slower than the rest cover
+     */
+    public static final int BUCKET_COUNT = 128;
+
+    private final int[] drawTimeBuckets = new int[BUCKET_COUNT];
+    private long frameCount;
+    private long totalDrawNanos;
+    private long maxDrawNanos;
+    private long ticksDrawn;
+    private long labelsDrawn;
+    private long flingFramesScheduled;
+    private long flingFramesDelivered;
+    private long predictedSamples;
+    private double totalPredictionError;
+    private double totalTouchLag;
+    private double maxPredictionError;
+
+    void recordFrame(long drawNanos, int ticks, int labels) {
+        int bucket = (int) Math.min(BUCKET_COUNT - 1, drawNanos / BUCKET_NANOS);
+        drawTimeBuckets[bucket]++;
+        frameCount++;
+        totalDrawNanos += drawNanos;
+        maxDrawNanos = Math.max(maxDrawNanos, drawNanos);
+        ticksDrawn += ticks;
+        labelsDrawn += labels;
+    }
+
+    /**
+     * @param framesElapsed display frames since the previous fling step; anything above one
+     *                      means frames were dropped
+     */
+
+    void recordFlingFrame(int framesElapsed) {
+        flingFramesScheduled += framesElapsed;
+        flingFramesDelivered++;
+    }
+
+    /**
+     * @param predictionError angle between where the dial was predicted to be and where the
+     *                        next touch sample put it
+     * @param touchLag        angle the dial would have trailed by without the prediction
+     */
+
+    void recordTouchPrediction(double predictionError, double touchLag) {
+        predictedSamples++;
+        totalPredictionError += predictionError;
+        totalTouchLag += touchLag;
+        maxPredictionError = Math.max(maxPredictionError, predictionError);
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getTotalDrawNanos() {
+        return totalDrawNanos;
+    }
+
+    public long getMaxDrawNanos() {
+        return maxDrawNanos;
+    }
+
+    public long getTicksDrawn() {
+        return ticksDrawn;
+    }
+
+    public long getLabelsDrawn() {
+        return labelsDrawn;
+    }
+
+    /**
+     * @return display frames that passed while a fling was running
+     */
+
+    public long getFlingFramesScheduled() {
+        return flingFramesScheduled;
+    }
+
+    /**
+     * @return fling steps that actually ran; the gap to the scheduled count is dropped frames
+     */
+
+    public long getFlingFramesDelivered() {
+        return flingFramesDelivered;
+    }
+
+    /**
+     * @return touch samples the predicted dial position was checked against
+     */
+
+    public long getPredictedSamples() {
+        return predictedSamples;
+    }
+
+    /**
+     * @return mean angle, in radians, between the predicted dial position and the next
+     * touch sample, 0 when nothing was predicted
+     */
+
+    public double getMeanPredictionError() {
+        return predictedSamples == 0 ? 0 : totalPredictionError / predictedSamples;
+    }
+
+    public double getMaxPredictionError() {
+        return maxPredictionError;
+    }
+
+    /**
+     * @return mean angle, in radians, the dial would have trailed the next touch sample by
+     * without prediction; the figure the prediction error compares against
+     */
+
+    public double getMeanTouchLag() {
+        return predictedSamples == 0 ? 0 : totalTouchLag / predictedSamples;
+    }
+
+    /**
+     * @param bucket histogram bucket, from 0 to {@link #BUCKET_COUNT} - 1
+     * @return frames whose draw time fell in that bucket
+     */
+
+    public int getDrawTimeBucket(int bucket) {
+        return drawTimeBuckets[bucket];
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper edge of the bucket holding that percentile of draw times, 0 when empty
+     */
+
+    public long getDrawTimePercentileNanos(double percentile) {
+        if (frameCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(frameCount * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += drawTimeBuckets[bucket];
+            if (seen >= rank) {
+                return (bucket + 1) * BUCKET_NANOS;
+            }
+        }
+        return BUCKET_COUNT * BUCKET_NANOS;
+    }
+
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            drawTimeBuckets[bucket] = 0;
+        }
+        frameCount = 0;
+        totalDrawNanos = 0;
+        maxDrawNanos = 0;
+        ticksDrawn = 0;
+        labelsDrawn = 0;
+        flingFramesScheduled = 0;
+        flingFramesDelivered = 0;
+        predictedSamples = 0;
+        totalPredictionError = 0;
+        totalTouchLag = 0;
+        maxPredictionError = 0;
+    }
+}
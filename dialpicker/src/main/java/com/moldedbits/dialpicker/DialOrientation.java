@@ -0,0 +1,82 @@
+package com.moldedbits.dialpicker;
+
+import static java.lang.Math.PI;
+
+/**
+ * Which way a dial faces, worked out once so {@link DialGeometry} can place the dial, lay the
+ * ticks out and read touches with the same arithmetic for every orientation.
+ * The dial center sits outside the view on the side opposite the facing angle, and the
+ * selected tick is the one pointing along it.
+ */
+
+public final class DialOrientation {
+
+    public static final DialOrientation LEFT = new DialOrientation(0, false);
+    public static final DialOrientation TOP = new DialOrientation(90, true);
+    public static final DialOrientation RIGHT = new DialOrientation(180, true);
+    public static final DialOrientation BOTTOM = new DialOrientation(270, true);
+
+    private final double facingAngle;
+    private final double facingCos;
+    private final double facingSin;
+    private final int tickSense;
+
+    private DialOrientation(double facingDegrees, boolean clockwise) {
+        facingAngle = facingDegrees * PI / 180;
+        // snap the cardinal directions so their layouts come out exact
+        facingCos = Math.rint(Math.cos(facingAngle) * 1e12) / 1e12;
+        facingSin = Math.rint(Math.sin(facingAngle) * 1e12) / 1e12;
+        tickSense = clockwise ? 1 : -1;
+    }
+
+    /**
+     * @param facingDegrees angle the dial faces, in screen degrees: 0 is to the right, 90 down
+     * @param clockwise     whether the tick indexes grow clockwise on screen
+     */
+
+    public static DialOrientation of(double facingDegrees, boolean clockwise) {
+        return new DialOrientation(facingDegrees, clockwise);
+    }
+
+    /**
+     * @param direction one of the DIRECTION constants of {@link DialGeometry}, matching the
+     *                  dialDirection attribute; anything else falls back to left
+     */
+
+    public static DialOrientation forDirection(int direction) {
+        switch (direction) {
+            case DialGeometry.DIRECTION_TOP:
+                return TOP;
+            case DialGeometry.DIRECTION_RIGHT:
+                return RIGHT;
+            case DialGeometry.DIRECTION_BOTTOM:
+                return BOTTOM;
+            default:
+                return LEFT;
+        }
+    }
+
+    /**
+     * @return the facing angle in radians, also the dial rotation that selects the first tick
+     */
+
+    public double getFacingAngle() {
+        return facingAngle;
+    }
+
+    public double getFacingCos() {
+        return facingCos;
+    }
+
+    public double getFacingSin() {
+        return facingSin;
+    }
+
+    /**
+     * @return 1 when the tick angles grow with the index, -1 when they shrink
+     */
+
+    public int getTickSense() {
+        return tickSense;
+    }
+}
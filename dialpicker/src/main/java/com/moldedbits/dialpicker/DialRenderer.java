@@ -0,0 +1,295 @@
+package com.moldedbits.dialpicker;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Picture;
+import android.graphics.Rect;
+import android.os.Build;
+
+/**
+ * Draws frames of a dial laid out by a {@link DialGeometry} onto a canvas. What goes where is
+ * worked out by a {@link DialFrame}; this issues its draw calls with the paints of a
+ * {@link DialStyle} and keeps the recorded faces of cached mode. Shared by {@link DialView}
+ * and {@link DialSurfaceView}; an instance is only ever used from one thread.
+ */
+
+final class DialRenderer implements DialCanvas {
+
+    private static final int LOD_MINOR = 0;
+    private static final int LOD_MAJOR = 1;
+    private static final int LOD_LABEL = 2;
+
+    private final DialFrame frame;
+    private DialStyle style;
+    private Paint paintLines;
+    private Paint paintText;
+    private int labelMode = DialView.LABEL_MODE_TEXT;
+
+    /**
+     * Canvas of the frame being drawn, and the one draw calls go to, which is a face while
+     * it is being recorded; only set during {@link #drawFrame}
+     */
+    private Canvas frameCanvas;
+    private Canvas target;
+    private Paint paintInnerCircle;
+
+    /**
+     * Major and minor tick lines recorded apart, so each kind can be left out of the cache
+     * while it fades
+     */
+    private Picture facePicture;
+    private Picture minorFacePicture;
+    private Picture recordingFace;
+
+    /**
+     * Copies of the shared paints, with the alpha of faded detail
+     */
+    private final Paint[] lodPaints = new Paint[3];
+
+    DialRenderer(DialAdapter adapter) {
+        frame = new DialFrame(adapter);
+    }
+
+    void setGeometry(DialGeometry geometry) {
+        frame.setGeometry(geometry);
+    }
+
+    void setStyle(DialStyle style) {
+        this.style = style;
+        paintLines = style.getLinePaint();
+        paintText = style.getTextPaint();
+        lodPaints[LOD_MINOR] = null;
+        lodPaints[LOD_MAJOR] = null;
+        lodPaints[LOD_LABEL] = null;
+        // the faces were recorded with the old paints
+        frame.invalidateFace();
+        updateGlyphs();
+    }
+
+    void setAdapter(DialAdapter adapter) {
+        frame.setAdapter(adapter);
+    }
+
+    /**
+     * @param labelMode either {@link DialView#LABEL_MODE_TEXT} or
+     *                  {@link DialView#LABEL_MODE_ATLAS}
+     */
+
+    void setLabelMode(int labelMode) {
+        this.labelMode = labelMode;
+        updateGlyphs();
+    }
+
+    int getLabelMode() {
+        return labelMode;
+    }
+
+    private void updateGlyphs() {
+        frame.setGlyphs(labelMode == DialView.LABEL_MODE_ATLAS && style != null
+                ? style.getGlyphAtlas().getLayout() : null);
+    }
+
+    /**
+     * @param cached whether to draw the tick lines from recorded faces where the canvas can
+     */
+
+    void setCached(boolean cached) {
+        frame.setCached(cached);
+    }
+
+    /**
+     * @see DialFrame#invalidateFace()
+     */
+
+    void invalidateFace() {
+        frame.invalidateFace();
+    }
+
+    /**
+     * @param band part of the view the ticks and labels are clipped to, empty for no clip
+     */
+
+    void setBand(Rect band) {
+        frame.setBand(band.left, band.top, band.right, band.bottom);
+    }
+
+    void resetCounters() {
+        frame.resetCounters();
+    }
+
+    /**
+     * @return ticks drawn since {@link #resetCounters()}
+     */
+
+    int getTicksDrawn() {
+        return frame.getTicksDrawn();
+    }
+
+    /**
+     * @return labels drawn since {@link #resetCounters()}
+     */
+
+    int getLabelsDrawn() {
+        return frame.getLabelsDrawn();
+    }
+
+    /**
+     * @return length of the longest label drawn so far
+     */
+
+    int getMaxLabelChars() {
+        return frame.getMaxLabelChars();
+    }
+
+    /**
+     * @see DialFrame#resizeLabelCache(int)
+     */
+
+    void resizeLabelCache(int lineInterval) {
+        frame.resizeLabelCache(lineInterval);
+    }
+
+    /**
+     * @param index tick index whose value is reported
+     * @return the value zero padded to two digits, cached along with the tick label
+     */
+
+    String formatValue(int index) {
+        return frame.formatValue(index);
+    }
+
+    /**
+     * @param canvas           to draw the dial on
+     * @param paintInnerCircle paint of the face of the dial, sized to the view
+     * @param theta            rotation of the dial
+     * @param minorDetail      opacity of the minor tick lines and labels, from 0 to 1
+     * @param majorDetail      opacity of the major tick lines, from 0 to 1
+     * @see DialFrame#draw(DialCanvas, double, float, float)
+     */
+
+    void drawFrame(Canvas canvas, Paint paintInnerCircle, double theta, float minorDetail,
+                   float majorDetail) {
+        frameCanvas = canvas;
+        target = canvas;
+        this.paintInnerCircle = paintInnerCircle;
+        try {
+            frame.draw(this, theta, minorDetail, majorDetail);
+        } finally {
+            frameCanvas = null;
+            target = null;
+            this.paintInnerCircle = null;
+        }
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, boolean arc) {
+        target.drawCircle(cx, cy, radius, arc ? style.getArcPaint() : paintInnerCircle);
+    }
+
+    @Override
+    public int save() {
+        return target.save();
+    }
+
+    @Override
+    public void clipRect(int left, int top, int right, int bottom) {
+        target.clipRect(left, top, right, bottom);
+    }
+
+    @Override
+    public void restoreToCount(int saveCount) {
+        target.restoreToCount(saveCount);
+    }
+
+    @Override
+    public void drawTickLines(float[] points, int count, boolean major, float detail) {
+        target.drawLines(points, 0, count,
+                fadedPaint(major ? LOD_MAJOR : LOD_MINOR, paintLines, detail));
+    }
+
+    @Override
+    public float measureText(char[] label, int length) {
+        return paintText.measureText(label, 0, length);
+    }
+
+    @Override
+    public float textHeight(char[] label, int length) {
+        return style.getGlyphHeight(label, length);
+    }
+
+    @Override
+    public void drawText(char[] label, int length, float x, float y, float detail) {
+        target.drawText(label, 0, length, x, y, fadedPaint(LOD_LABEL, paintText, detail));
+    }
+
+    @Override
+    public void drawGlyph(int glyph, float left, float top, float detail) {
+        style.getGlyphAtlas().drawGlyph(target, glyph, left, top, (int) (255 * detail));
+    }
+
+    /**
+     * Pictures drawn on a hardware canvas are only supported from Marshmallow on
+     */
+
+    @Override
+    public boolean canDrawFaces() {
+        return !frameCanvas.isHardwareAccelerated() || Build.VERSION.SDK_INT >= Build.VERSION_CODES.M;
+    }
+
+    @Override
+    public void beginFace(boolean minor, int size, float dx, float dy) {
+        if (minor) {
+            if (minorFacePicture == null) {
+                minorFacePicture = new Picture();
+            }
+            recordingFace = minorFacePicture;
+        } else {
+            if (facePicture == null) {
+                facePicture = new Picture();
+            }
+            recordingFace = facePicture;
+        }
+        target = recordingFace.beginRecording(size, size);
+        target.translate(dx, dy);
+    }
+
+    @Override
+    public void endFace() {
+        recordingFace.endRecording();
+        recordingFace = null;
+        target = frameCanvas;
+    }
+
+    @Override
+    public void drawFaces(boolean minor, boolean major, float degrees, float px, float py,
+                          float dx, float dy) {
+        int saveCount = target.save();
+        target.rotate(degrees, px, py);
+        target.translate(dx, dy);
+        if (minor) {
+            target.drawPicture(minorFacePicture);
+        }
+        if (major) {
+            target.drawPicture(facePicture);
+        }
+        target.restoreToCount(saveCount);
+    }
+
+    /**
+     * @param which one of {@link #LOD_MINOR}, {@link #LOD_MAJOR} or {@link #LOD_LABEL}
+     * @return base itself at full detail, otherwise a copy of it made translucent
+     */
+
+    private Paint fadedPaint(int which, Paint base, float detail) {
+        if (detail >= 1) {
+            return base;
+        }
+        Paint faded = lodPaints[which];
+        if (faded == null) {
+            faded = new Paint(base);
+            lodPaints[which] = faded;
+        }
+        faded.setAlpha((int) (base.getAlpha() * detail));
+        return faded;
+    }
+}
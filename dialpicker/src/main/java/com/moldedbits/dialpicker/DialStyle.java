@@ -0,0 +1,213 @@
+package com.moldedbits.dialpicker;
+
+import android.graphics.DashPathEffect;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Shader;
+import android.util.SparseArray;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Paints of a {@link DialView}, shared by every dial inflated with the same colors and
+ * text size. Dials bound over and over in a list then reuse one set of paints, gradients
+ * and label glyph bounds instead of building their own. The paints are never changed once
+ * created, and like the rest of the view they are only touched on the main thread.
+ */
+
+final class DialStyle {
+
+    private static final Map<DialStyle, WeakReference<DialStyle>> STYLES = new WeakHashMap<>();
+
+    private static final int NO_HEIGHT = -1;
+
+    private final int startColor;
+    private final int endColor;
+    private final int lineColor;
+    private final int textColor;
+    private final int arcColor;
+    private final int textSize;
+
+    private Paint paintArc;
+    private Paint paintLines;
+    private Paint paintText;
+
+    /**
+     * Circle fill paints by view height, each with its gradient spanning that height
+     */
+    private SparseArray<Paint> innerCirclePaints;
+
+    /**
+     * Heights of the ASCII glyphs labels start with, {@link #NO_HEIGHT} until measured
+     */
+    private int[] glyphHeights;
+    private Rect glyphBounds;
+    private GlyphAtlas glyphAtlas;
+    private float emWidth = -1;
+
+    private DialStyle(int startColor, int endColor, int lineColor, int textColor, int arcColor,
+                      int textSize) {
+        this.startColor = startColor;
+        this.endColor = endColor;
+        this.lineColor = lineColor;
+        this.textColor = textColor;
+        this.arcColor = arcColor;
+        this.textSize = textSize;
+    }
+
+    /**
+     * @return the style already used by another dial with the same attributes, or a new one
+     */
+
+    static DialStyle obtain(int startColor, int endColor, int lineColor, int textColor,
+                            int arcColor, int textSize) {
+        DialStyle key = new DialStyle(startColor, endColor, lineColor, textColor, arcColor,
+                textSize);
+        WeakReference<DialStyle> shared = STYLES.get(key);
+        DialStyle style = shared != null ? shared.get() : null;
+        if (style == null) {
+            style = key;
+            style.createPaints();
+            STYLES.put(style, new WeakReference<>(style));
+        }
+        return style;
+    }
+
+    /**
+     * @return a style of its own, for a dial that draws off the main thread and so cannot
+     * share the lazily filled caches of an interned one
+     */
+
+    static DialStyle create(int startColor, int endColor, int lineColor, int textColor,
+                            int arcColor, int textSize) {
+        DialStyle style = new DialStyle(startColor, endColor, lineColor, textColor, arcColor,
+                textSize);
+        style.createPaints();
+        return style;
+    }
+
+    private void createPaints() {
+        paintArc = new Paint();
+        paintArc.setStyle(Paint.Style.STROKE);
+        paintArc.setPathEffect(new DashPathEffect(new float[]{5, 10}, 0));
+        paintArc.setColor(arcColor);
+
+        paintLines = new Paint();
+        paintLines.setAntiAlias(true);
+        paintLines.setColor(lineColor);
+
+        paintText = new Paint();
+        paintText.setTextAlign(Paint.Align.CENTER);
+        paintText.setColor(textColor);
+        paintText.setTextSize(textSize);
+
+        innerCirclePaints = new SparseArray<>();
+        glyphHeights = new int[128];
+        Arrays.fill(glyphHeights, NO_HEIGHT);
+        glyphBounds = new Rect();
+    }
+
+    Paint getArcPaint() {
+        return paintArc;
+    }
+
+    Paint getLinePaint() {
+        return paintLines;
+    }
+
+    Paint getTextPaint() {
+        return paintText;
+    }
+
+    /**
+     * @return the label glyphs of this style, rasterised on first use
+     */
+
+    GlyphAtlas getGlyphAtlas() {
+        if (glyphAtlas == null) {
+            glyphAtlas = new GlyphAtlas(paintText);
+        }
+        return glyphAtlas;
+    }
+
+    /**
+     * @return width of the widest common glyph, an upper bound for one char of a label
+     */
+
+    float getEmWidth() {
+        if (emWidth < 0) {
+            emWidth = paintText.measureText("M");
+        }
+        return emWidth;
+    }
+
+    /**
+     * @param height height of the view the circle is drawn in
+     * @return fill paint whose gradient runs from the top to the bottom of that view
+     */
+
+    Paint getInnerCirclePaint(int height) {
+        Paint paint = innerCirclePaints.get(height);
+        if (paint == null) {
+            paint = new Paint();
+            paint.setStyle(Paint.Style.FILL);
+            paint.setFilterBitmap(true);
+            paint.setShader(new LinearGradient(0, 0, 0, height, endColor, startColor,
+                    Shader.TileMode.CLAMP));
+            innerCirclePaints.put(height, paint);
+        }
+        return paint;
+    }
+
+    /**
+     * @return height of the first glyph of label, which the labels are centered on
+     */
+
+    int getGlyphHeight(char[] label, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        char first = label[0];
+        if (first < glyphHeights.length && glyphHeights[first] != NO_HEIGHT) {
+            return glyphHeights[first];
+        }
+        paintText.getTextBounds(label, 0, 1, glyphBounds);
+        int height = glyphBounds.height();
+        if (first < glyphHeights.length) {
+            glyphHeights[first] = height;
+        }
+        return height;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DialStyle)) {
+            return false;
+        }
+        DialStyle other = (DialStyle) o;
+        return startColor == other.startColor
+                && endColor == other.endColor
+                && lineColor == other.lineColor
+                && textColor == other.textColor
+                && arcColor == other.arcColor
+                && textSize == other.textSize;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = startColor;
+        result = 31 * result + endColor;
+        result = 31 * result + lineColor;
+        result = 31 * result + textColor;
+        result = 31 * result + arcColor;
+        result = 31 * result + textSize;
+        return result;
+    }
+}
@@ -0,0 +1,516 @@
+package com.moldedbits.dialpicker;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Trace;
+import android.support.annotation.NonNull;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+import android.view.VelocityTracker;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.lang.Math.PI;
+
+/**
+ * Dial like {@link DialView}, drawn into its own surface by a dedicated render thread, so a
+ * fling keeps turning at the display rate while the main thread is busy. The dial is laid out
+ * by the same {@link DialGeometry} and decelerates with the same physics; touches are handed to
+ * the render thread through a lock-free queue and the selected value comes back to the main
+ * thread. Takes the DialView attributes but ignores renderMode, flingMode, lodMode and
+ * touchPrediction: it always flings freely and draws every tick and label. The surface sits
+ * behind the window like any SurfaceView, so views overlapping it are drawn over it, and it is
+ * filled opaquely with surfaceColor since nothing of the window shows through.
+ */
+
+public class DialSurfaceView extends SurfaceView implements SurfaceHolder.Callback {
+
+    private static final float VELOCITY_THRESHOLD = 0.05f;
+
+    private static final int TOUCH_QUEUE_SIZE = 256;
+
+    /**
+     * Outer edge of the tick band past the dial radius
+     */
+    private static final int TICK_BAND_OUTER = 40;
+
+    /**
+     * Pixels the outermost point of a tick has to move before the surface is drawn again
+     */
+    private static final double SUBPIXEL_THRESHOLD = 0.5;
+
+    private int maxValue;
+    private int minValue;
+    private int lineInterval;
+    private int textSize;
+    private int leastCount;
+    private int centerPadding;
+    private double tickGapAngle;
+
+    /**
+     * Knob deceleration
+     */
+    private float deceleration = 10f;
+
+    private final TouchQueue touchQueue = new TouchQueue(TOUCH_QUEUE_SIZE);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final RenderLoop loop;
+
+    private HandlerThread renderThread;
+    private Handler renderHandler;
+
+    /**
+     * Whether a wake up of the render loop is already on its way
+     */
+    private final AtomicBoolean wakePosted = new AtomicBoolean();
+
+    /**
+     * Latest tick the render thread has turned to, and whether its delivery is pending
+     */
+    private final AtomicReference<Selection> selection = new AtomicReference<>();
+    private final AtomicBoolean selectionPosted = new AtomicBoolean();
+
+    private VelocityTracker velocityTracker;
+    private int selectedIndex = -1;
+    private DialView.OnDialValueChangeListener onDialValueChangeListener;
+
+    public DialSurfaceView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public DialSurfaceView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        loop = init(attrs, context);
+        getHolder().setFormat(PixelFormat.OPAQUE);
+        getHolder().addCallback(this);
+    }
+
+    /**
+     * @param attrs   are the attributes containing the values given by user
+     * @param context context of the activity to use this view class
+     * @return the render loop, set up on this thread and handed to the render thread when the
+     * surface is created
+     */
+
+    private RenderLoop init(AttributeSet attrs, Context context) {
+        int dialDirection = 0;
+        float dialAngle = Float.NaN;
+        int startColor = 0;
+        int endColor = 0;
+        int paintLineColor = 0;
+        int paintTextColor = 0;
+        int paintArcColor = 0;
+        int labelMode = DialView.LABEL_MODE_TEXT;
+        int surfaceColor = Color.WHITE;
+        if (attrs != null) {
+            TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.DialView);
+            lineInterval = typedArray.getInt(R.styleable.DialView_lineInterval, 0);
+            maxValue = typedArray.getInt(R.styleable.DialView_maxValue, 0);
+            minValue = typedArray.getInt(R.styleable.DialView_minValue, 0);
+            leastCount = typedArray.getInt(R.styleable.DialView_leastCount, 0);
+            centerPadding = typedArray.getInt(R.styleable.DialView_centerPadding, 0);
+            textSize = typedArray.getInt(R.styleable.DialView_textSize, 0);
+            dialDirection = typedArray.getInt(R.styleable.DialView_dialDirection, 0);
+            dialAngle = typedArray.getFloat(R.styleable.DialView_dialAngle, Float.NaN);
+            tickGapAngle = ((double) typedArray.getInt(R.styleable.DialView_tickGapAngle, 0)
+                    / (double) 180) * PI;
+            startColor = typedArray.getColor(R.styleable.DialView_startColor, 0);
+            endColor = typedArray.getColor(R.styleable.DialView_endColor, 0);
+            paintLineColor = typedArray.getColor(R.styleable.DialView_paintLineColor, 0);
+            paintTextColor = typedArray.getColor(R.styleable.DialView_paintTextColor, 0);
+            paintArcColor = typedArray.getColor(R.styleable.DialView_paintArcColor, 0);
+            labelMode = typedArray.getInt(R.styleable.DialView_labelMode, DialView.LABEL_MODE_TEXT);
+            surfaceColor = typedArray.getColor(R.styleable.DialView_surfaceColor, Color.WHITE);
+            typedArray.recycle();
+        }
+
+        if (minValue >= maxValue) {
+            maxValue = minValue;
+            minValue = 0;
+        }
+
+        DialAdapter adapter = new RangeDialAdapter(minValue, maxValue, leastCount, lineInterval);
+        DialGeometry geometry = new DialGeometry(Float.isNaN(dialAngle)
+                ? DialOrientation.forDirection(dialDirection) : DialOrientation.of(dialAngle, true));
+        geometry.setTicks(adapter.getCount(), tickGapAngle);
+        // the render thread fills the caches of its style lazily, so it cannot share the
+        // interned one the main thread dials use
+        DialStyle style = DialStyle.create(startColor, endColor, paintLineColor, paintTextColor,
+                paintArcColor, textSize);
+        DialRenderer renderer = new DialRenderer(adapter);
+        renderer.setLabelMode(labelMode);
+        renderer.setGeometry(geometry);
+        renderer.setStyle(style);
+        // the surface is opaque, a translucent color would show whatever was drawn before
+        return new RenderLoop(geometry, style, renderer, surfaceColor | 0xff000000);
+    }
+
+    public void setOnDialValueChangeListener(DialView.OnDialValueChangeListener onDialValueChangeListener) {
+        this.onDialValueChangeListener = onDialValueChangeListener;
+    }
+
+    /**
+     * @return index of the selected tick as last delivered on the main thread, or -1 before
+     * the dial has been laid out
+     */
+
+    public int getSelectedIndex() {
+        return selectedIndex;
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        renderThread = new HandlerThread("DialSurfaceView");
+        renderThread.start();
+        renderHandler = new Handler(renderThread.getLooper());
+    }
+
+    @Override
+    public void surfaceChanged(final SurfaceHolder holder, int format, final int width, final int height) {
+        renderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                loop.layout(holder, width, height);
+            }
+        });
+    }
+
+    /**
+     * Blocks until the render thread has let go of the surface, which must not be drawn
+     * into once this returns
+     */
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        renderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                loop.stop();
+                stopped.countDown();
+            }
+        });
+        boolean interrupted = false;
+        while (true) {
+            try {
+                stopped.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        renderThread.quit();
+        renderThread = null;
+        renderHandler = null;
+        wakePosted.set(false);
+    }
+
+    @Override
+    public boolean onTouchEvent(@NonNull MotionEvent event) {
+        if (renderHandler == null) {
+            // nothing to turn until there is a surface to draw on
+            return false;
+        }
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                if (getParent() != null) {
+                    getParent().requestDisallowInterceptTouchEvent(true);
+                }
+                if (velocityTracker != null) {
+                    velocityTracker.recycle();
+                }
+                velocityTracker = VelocityTracker.obtain();
+                velocityTracker.addMovement(event);
+                touchQueue.offer(TouchQueue.DOWN, event.getX(), event.getY(), 0, 0);
+                break;
+
+            case MotionEvent.ACTION_MOVE:
+                if (velocityTracker == null) {
+                    return false;
+                }
+                velocityTracker.addMovement(event);
+                // moves only drop out when the render thread has fallen far behind; the
+                // rotation is measured between the samples that get through, so none is lost
+                for (int h = 0; h < event.getHistorySize(); h++) {
+                    touchQueue.offer(TouchQueue.MOVE, event.getHistoricalX(h),
+                            event.getHistoricalY(h), 0, 0);
+                }
+                touchQueue.offer(TouchQueue.MOVE, event.getX(), event.getY(), 0, 0);
+                break;
+
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                if (velocityTracker == null) {
+                    return false;
+                }
+                float xVelocity = 0;
+                float yVelocity = 0;
+                if (event.getActionMasked() == MotionEvent.ACTION_UP) {
+                    velocityTracker.addMovement(event);
+                    velocityTracker.computeCurrentVelocity(1);
+                    xVelocity = velocityTracker.getXVelocity();
+                    yVelocity = velocityTracker.getYVelocity();
+                }
+                velocityTracker.recycle();
+                velocityTracker = null;
+                touchQueue.offer(TouchQueue.UP, event.getX(), event.getY(), xVelocity, yVelocity);
+                break;
+
+            default:
+                return false;
+        }
+        if (wakePosted.compareAndSet(false, true)) {
+            renderHandler.post(loop);
+        }
+        return true;
+    }
+
+    /**
+     * Sends the latest selection to the listener, however many ticks the render thread went
+     * past since the last delivery
+     */
+
+    private final Runnable deliverSelection = new Runnable() {
+        @Override
+        public void run() {
+            // cleared first, so a selection published from here on is posted again
+            selectionPosted.set(false);
+            Selection latest = selection.get();
+            if (latest == null || latest.index == selectedIndex) {
+                return;
+            }
+            selectedIndex = latest.index;
+            if (onDialValueChangeListener != null) {
+                onDialValueChangeListener.onDialValueChanged(latest.value, latest.index, maxValue);
+            }
+        }
+    };
+
+    /**
+     * A selected tick and its formatted value, published whole by the render thread
+     */
+
+    private static final class Selection {
+        final int index;
+        final String value;
+
+        Selection(int index, String value) {
+            this.index = index;
+            this.value = value;
+        }
+    }
+
+    /**
+     * State of the dial owned by the render thread. Runs as the wake up posted after new
+     * touches, and as the frame callback of the render thread's own {@link Choreographer}.
+     */
+
+    private final class RenderLoop implements Runnable, Choreographer.FrameCallback {
+
+        private final DialGeometry geometry;
+        private final DialStyle style;
+        private final DialRenderer renderer;
+        private final int surfaceColor;
+
+        private SurfaceHolder holder;
+        private Paint paintInnerCircle;
+        private double currentTheta;
+        private double drawnTheta = Double.NaN;
+        private int reportedIndex = -1;
+
+        private boolean frameScheduled;
+        private boolean touching;
+        private float lastTouchXCircle;
+        private float lastTouchYCircle;
+
+        private boolean flinging;
+        private float initVelocity;
+        private long currentTime;
+
+        RenderLoop(DialGeometry geometry, DialStyle style, DialRenderer renderer, int surfaceColor) {
+            this.geometry = geometry;
+            this.style = style;
+            this.renderer = renderer;
+            this.surfaceColor = surfaceColor;
+            currentTheta = geometry.getInitialTheta();
+        }
+
+        void layout(SurfaceHolder holder, int width, int height) {
+            this.holder = holder;
+            geometry.layout(width, height, centerPadding, textSize);
+            renderer.resizeLabelCache(lineInterval);
+            paintInnerCircle = style.getInnerCirclePaint(height);
+            currentTheta = geometry.clampTheta(currentTheta);
+            drawnTheta = Double.NaN;
+            publishSelection();
+            scheduleFrame();
+        }
+
+        /**
+         * Lets go of the surface, keeping the dial where it is for the next one
+         */
+
+        void stop() {
+            holder = null;
+            if (frameScheduled) {
+                Choreographer.getInstance().removeFrameCallback(this);
+                frameScheduled = false;
+            }
+            flinging = false;
+            touching = false;
+            // whatever is still queued belongs to a gesture the surface went away during
+            while (touchQueue.peek() >= 0) {
+                touchQueue.remove();
+            }
+        }
+
+        @Override
+        public void run() {
+            // cleared before the queue is drained, so touches offered from here on wake the
+            // loop again
+            wakePosted.set(false);
+            scheduleFrame();
+        }
+
+        private void scheduleFrame() {
+            if (!frameScheduled && holder != null) {
+                frameScheduled = true;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            frameScheduled = false;
+            Trace.beginSection("DialSurfaceView#frame");
+            drainTouches(frameTimeNanos);
+            if (flinging) {
+                stepFling(frameTimeNanos);
+            }
+            double moved = Math.abs(currentTheta - drawnTheta) * (geometry.getRadius() + TICK_BAND_OUTER);
+            if (Double.isNaN(drawnTheta) || moved >= SUBPIXEL_THRESHOLD) {
+                draw();
+            }
+            if (flinging) {
+                scheduleFrame();
+            }
+            Trace.endSection();
+        }
+
+        private void drainTouches(long frameTimeNanos) {
+            for (int slot = touchQueue.peek(); slot >= 0; slot = touchQueue.peek()) {
+                float x = geometry.touchX(touchQueue.x(slot));
+                float y = geometry.touchY(touchQueue.y(slot));
+                switch (touchQueue.type(slot)) {
+                    case TouchQueue.DOWN:
+                        // user is touching the dial -> no more fling
+                        flinging = false;
+                        touching = true;
+                        lastTouchXCircle = x;
+                        lastTouchYCircle = y;
+                        break;
+
+                    case TouchQueue.MOVE:
+                        if (touching) {
+                            rotate(geometry.touchDelta(lastTouchXCircle, lastTouchYCircle, x, y), x, y);
+                        }
+                        break;
+
+                    case TouchQueue.UP:
+                        if (touching) {
+                            touching = false;
+                            initVelocity = geometry.flingVelocity(touchQueue.xVelocity(slot),
+                                    touchQueue.yVelocity(slot));
+                            flinging = Math.abs(initVelocity) >= VELOCITY_THRESHOLD;
+                            currentTime = frameTimeNanos;
+                        }
+                        break;
+
+                    default:
+                        break;
+                }
+                touchQueue.remove();
+            }
+        }
+
+        /**
+         * Same integration as the free fling of {@link DialView}
+         */
+
+        private void stepFling(long frameTimeNanos) {
+            double deltaSecs = Math.max(0, ((double) (frameTimeNanos - currentTime)) / 1000000000);
+            currentTime = Math.max(currentTime, frameTimeNanos);
+            rotate(DialGeometry.flingDistance(initVelocity, deceleration, deltaSecs),
+                    lastTouchXCircle, lastTouchYCircle);
+            initVelocity = (float) DialGeometry.flingVelocityAfter(initVelocity, deceleration, deltaSecs);
+            flinging = initVelocity != 0;
+        }
+
+        /**
+         * @param delta rotation between the min and max angle theta
+         * @param x     touch point the rotation was measured to, kept while within range
+         * @param y     touch point the rotation was measured to, kept while within range
+         */
+
+        private void rotate(double delta, float x, float y) {
+            currentTheta += delta;
+            if (geometry.isWithinRange(currentTheta)) {
+                lastTouchXCircle = x;
+                lastTouchYCircle = y;
+            } else {
+                currentTheta = geometry.clampTheta(currentTheta);
+            }
+            publishSelection();
+        }
+
+        /**
+         * Posts the selected tick to the main thread when it changed, coalescing everything
+         * the main thread has not picked up yet into one delivery
+         */
+
+        private void publishSelection() {
+            if (tickGapAngle <= 0 || geometry.getTickCount() < 1) {
+                return;
+            }
+            int index = geometry.indexAtTheta(currentTheta);
+            if (index == reportedIndex) {
+                return;
+            }
+            reportedIndex = index;
+            selection.set(new Selection(index, renderer.formatValue(index)));
+            if (selectionPosted.compareAndSet(false, true)) {
+                mainHandler.post(deliverSelection);
+            }
+        }
+
+        private void draw() {
+            Canvas canvas = holder.lockCanvas();
+            if (canvas == null) {
+                return;
+            }
+            try {
+                canvas.drawColor(surfaceColor);
+                renderer.resetCounters();
+                renderer.drawFrame(canvas, paintInnerCircle, currentTheta, 1, 1);
+            } finally {
+                holder.unlockCanvasAndPost(canvas);
+            }
+            drawnTheta = currentTheta;
+        }
+    }
+}
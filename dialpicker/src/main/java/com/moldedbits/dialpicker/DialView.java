@@ -1,21 +1,24 @@
 package com.moldedbits.dialpicker;
 
+import android.animation.TimeInterpolator;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
-import android.graphics.DashPathEffect;
-import android.graphics.LinearGradient;
 import android.graphics.Paint;
+import android.graphics.Picture;
 import android.graphics.Rect;
-import android.graphics.Shader;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.support.annotation.NonNull;
 import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.Display;
 import android.view.MotionEvent;
 import android.view.VelocityTracker;
 import android.view.View;
 
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
 import java.util.logging.Logger;
 
 import static java.lang.Math.PI;
@@ -27,8 +30,6 @@ import static java.lang.Math.PI;
 
 public class DialView extends View {
 
-    private static final int CENTER_OFFSET = 40;
-    private static final int CENTER_OFFSET_VERTICAL = 40;
     private static final float VELOCITY_THRESHOLD = 0.05f;
     Logger logger = Logger.getLogger("DialView");
     /**
@@ -58,12 +59,9 @@ public class DialView extends View {
 
     private static final int RADIANS_PER_SECOND = 1;
 
-    private double tickCount;
+    private DialGeometry geometry;
     private double currentTheta;
     private double initTheta;
-    private Rect bounds = new Rect();
-    private double minAngleTheta;
-    private double maxAngleTheta;
     private double tickGapAngle;
     private long currentTime;
     private int maxValue;
@@ -73,7 +71,7 @@ public class DialView extends View {
     private int leastCount;
     private int centerPadding;
     private int dialDirection;
-    private int angleToCompare;
+    private float dialAngle = Float.NaN;
     private double delta;
     private int startColor;
     private int endColor;
@@ -81,23 +79,537 @@ public class DialView extends View {
     private int paintLineColor;
     private int paintArcColor;
 
+    private DialAdapter adapter;
+
+    /**
+     * Draws the ticks and labels and keeps the labels formatted between frames
+     */
+    private DialRenderer renderer;
+
+    /**
+     * Every tick and label is laid out again on each frame
+     */
+    public static final int RENDER_MODE_IMMEDIATE = 0;
+
+    /**
+     * The tick lines are recorded once into a {@link Picture} and rotated with a canvas
+     * transform on each frame. Labels stay upright and the circles keep their gradient
+     * unrotated, so those are still drawn per frame.
+     */
+    public static final int RENDER_MODE_CACHED = 1;
+
+    /**
+     * Labels are drawn as text
+     */
+    public static final int LABEL_MODE_TEXT = 0;
+
+    /**
+     * Numeric labels are copied glyph by glyph out of a bitmap rendered once per style, so
+     * no text is shaped while the dial turns. Labels with other chars are drawn as text.
+     */
+    public static final int LABEL_MODE_ATLAS = 1;
+
+    /**
+     * Where the tick band starts and ends outside the dial radius; labels hang off its
+     * outer edge
+     */
+    private static final int TICK_BAND_INNER = 10;
+    private static final int TICK_BAND_OUTER = 40;
+
+    /**
+     * Pixels the outermost point of a tick has to move before the dial is drawn again
+     */
+    private static final double SUBPIXEL_THRESHOLD = 0.5;
+
+    /**
+     * Part of the view the ticks and labels are drawn in, empty until measured
+     */
+    private final Rect dialBand = new Rect();
+    private final int[] ringBounds = new int[4];
+    private int maxLabelChars;
+    private double drawnTheta = Double.NaN;
+    private final Rect visibleRect = new Rect();
+
+    private int renderMode = RENDER_MODE_IMMEDIATE;
+
     /**
      * Knob deceleration
      */
     private float deceleration = 10f;
 
-    private int centerX;
-    private int centerY;
-    private int radius;
+    /**
+     * Paints shared with every other dial of the same style
+     */
+    private DialStyle style;
     private Paint paintInnerCircle;
     private Paint paintArc;
-    private Paint paintLines;
-    private Paint paintText;
 
     private OnDialValueChangeListener onDialValueChangeListener;
+    private OnDialValueStreamListener onDialValueStreamListener;
+    private int sampledIndex = NO_INDEX;
+    private int settledIndex = NO_INDEX;
+    private boolean sampleScheduled;
+
+    /**
+     * Index of the tick facing the selection angle, or {@link #NO_INDEX} before the first measure
+     */
+    private static final int NO_INDEX = -1;
+    private int selectedIndex = NO_INDEX;
+
+    /**
+     * @param listener notified once per change of the selected tick, and right away with the
+     *                 current one if the dial has already been measured
+     */
 
     public void setOnDialValueChangeListener(OnDialValueChangeListener listener) {
         this.onDialValueChangeListener = listener;
+        if (listener != null && selectedIndex != NO_INDEX) {
+            listener.onDialValueChanged(renderer.formatValue(selectedIndex), selectedIndex, maxValue);
+        }
+    }
+
+    /**
+     * Replaces the ticks of the dial. The adapter is only queried for the ticks being drawn
+     * or reported, so it may back ranges far larger than what fits on screen.
+     *
+     * @param adapter supplies the tick count, labels and major ticks
+     */
+
+    public void setAdapter(@NonNull DialAdapter adapter) {
+        this.adapter = adapter;
+        renderer.setAdapter(adapter);
+        updateTicks(currentTheta);
+    }
+
+    /**
+     * @param listener sampled at most once per frame with the selected tick, and told when
+     *                 the dial comes to rest on a tick other than the last one it settled on
+     */
+
+    public void setOnDialValueStreamListener(OnDialValueStreamListener listener) {
+        this.onDialValueStreamListener = listener;
+        sampledIndex = NO_INDEX;
+        settledIndex = NO_INDEX;
+    }
+
+    /**
+     * Delivers the selected tick of the frame, if it changed since the last sample
+     */
+
+    Choreographer.FrameCallback sampleFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            sampleScheduled = false;
+            deliverSample();
+        }
+    };
+
+    private void deliverSample() {
+        if (onDialValueStreamListener != null && selectedIndex != NO_INDEX
+                && selectedIndex != sampledIndex) {
+            sampledIndex = selectedIndex;
+            onDialValueStreamListener.onDialValueSampled(selectedIndex);
+        }
+    }
+
+    /**
+     * Called once the dial stops moving: flushes the pending sample so the stream ends on
+     * the settled tick, then reports the tick unless it is the one already settled on
+     */
+
+    private void settle() {
+        if (onDialValueStreamListener == null || selectedIndex == NO_INDEX) {
+            return;
+        }
+        if (sampleScheduled) {
+            Choreographer.getInstance().removeFrameCallback(sampleFrameCallback);
+            sampleScheduled = false;
+        }
+        deliverSample();
+        if (selectedIndex != settledIndex) {
+            settledIndex = selectedIndex;
+            onDialValueStreamListener.onDialSettled(selectedIndex);
+        }
+    }
+
+    public DialAdapter getAdapter() {
+        return adapter;
+    }
+
+    /**
+     * Replaces the ticks with the values from minValue to maxValue, the same way the XML
+     * attributes do. The view keeps its size, so no layout pass is needed.
+     *
+     * @param minValue value of the first tick
+     * @param maxValue value of the last tick
+     */
+
+    public void setRange(int minValue, int maxValue) {
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        if (this.minValue >= this.maxValue) {
+            this.maxValue = this.minValue;
+            this.minValue = 0;
+        }
+        setAdapter(new RangeDialAdapter(this.minValue, this.maxValue, leastCount, lineInterval));
+    }
+
+    /**
+     * @param leastCount difference between the values of two neighbouring ticks
+     */
+
+    public void setLeastCount(int leastCount) {
+        this.leastCount = leastCount;
+        setAdapter(new RangeDialAdapter(minValue, maxValue, leastCount, lineInterval));
+    }
+
+    /**
+     * Turns the dial straight to the tick closest to value, stopping any fling
+     *
+     * @param value value within the range set by XML or {@link #setRange(int, int)}
+     * @throws IllegalStateException if the ticks come from an adapter set with
+     *                               {@link #setAdapter(DialAdapter)}
+     */
+
+    public void setValue(int value) {
+        if (!(adapter instanceof RangeDialAdapter)) {
+            throw new IllegalStateException("setValue needs a range, use setSelectedIndex instead");
+        }
+        setSelectedIndex(((RangeDialAdapter) adapter).indexOf(value));
+    }
+
+    /**
+     * Turns the dial straight to a tick, stopping any fling
+     *
+     * @param index index of the tick to select, clamped to the ticks of the adapter
+     */
+
+    public void setSelectedIndex(int index) {
+        stopFling();
+        currentTheta = geometry.thetaForIndex(Math.max(0, Math.min(adapter.getCount() - 1, index)));
+        updateSelectedIndex();
+        settle();
+        invalidate();
+    }
+
+    /**
+     * Turns the dial to the tick closest to value on the frame clock. Calling it again while
+     * the dial is on its way restarts the animation from where the dial is, towards the new
+     * value, so fast updates never queue up. Touching the dial cancels it.
+     *
+     * @param value        value within the range set by XML or {@link #setRange(int, int)}
+     * @param durationMs   length of the animation
+     * @param interpolator easing of the animation, or null to move at a constant speed
+     * @throws IllegalStateException if the ticks come from an adapter set with
+     *                               {@link #setAdapter(DialAdapter)}
+     */
+
+    public void animateToValue(int value, long durationMs, TimeInterpolator interpolator) {
+        if (!(adapter instanceof RangeDialAdapter)) {
+            throw new IllegalStateException("animateToValue needs a range, use animateToIndex instead");
+        }
+        animateToIndex(((RangeDialAdapter) adapter).indexOf(value), durationMs, interpolator);
+    }
+
+    /**
+     * Same as {@link #animateToValue(int, long, TimeInterpolator)}, for a tick index
+     */
+
+    public void animateToIndex(int index, long durationMs, TimeInterpolator interpolator) {
+        if (motion != MOTION_ANIMATION) {
+            stopFling();
+            motion = MOTION_ANIMATION;
+            postMotionFrame(animateFrameCallback);
+        }
+        animateStartTheta = currentTheta;
+        animateTargetTheta = geometry.thetaForIndex(Math.max(0, Math.min(adapter.getCount() - 1, index)));
+        animateStartNanos = 0;
+        animateDurationNanos = Math.max(0, durationMs) * 1000000;
+        animateInterpolator = interpolator;
+    }
+
+    private double animateStartTheta;
+    private double animateTargetTheta;
+    private long animateStartNanos;
+    private long animateDurationNanos;
+    private TimeInterpolator animateInterpolator;
+
+    /**
+     * Steps {@link #animateToIndex(int, long, TimeInterpolator)}, timed from the first frame
+     * after the latest call
+     */
+
+    Choreographer.FrameCallback animateFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!isOnScreen()) {
+                finishMotion();
+                return;
+            }
+            if (animateStartNanos == 0) {
+                animateStartNanos = frameTimeNanos;
+            }
+            float fraction = 1;
+            if (animateDurationNanos > 0) {
+                fraction = Math.min(1, (float) (frameTimeNanos - animateStartNanos) / animateDurationNanos);
+            }
+            float eased = animateInterpolator != null
+                    ? animateInterpolator.getInterpolation(fraction) : fraction;
+            rotate(animateStartTheta + (animateTargetTheta - animateStartTheta) * eased - currentTheta);
+            if (fraction < 1) {
+                postMotionFrame(this);
+            } else {
+                motion = MOTION_NONE;
+                settle();
+            }
+        }
+    };
+
+    /**
+     * @return index of the selected tick, or -1 before the dial has been measured
+     */
+
+    public int getSelectedIndex() {
+        return selectedIndex;
+    }
+
+    /**
+     * Moves the dial to another edge of the view, keeping the selected tick
+     *
+     * @param direction one of the {@link DialGeometry} DIRECTION constants
+     */
+
+    public void setDirection(int direction) {
+        dialDirection = direction;
+        setOrientation(DialOrientation.forDirection(direction));
+    }
+
+    public int getDirection() {
+        return dialDirection;
+    }
+
+    /**
+     * Turns the dial to face any angle, keeping the selected tick
+     *
+     * @param orientation one of the {@link DialOrientation} sides, or any other angle
+     */
+
+    public void setOrientation(@NonNull DialOrientation orientation) {
+        if (orientation == geometry.getOrientation()) {
+            return;
+        }
+        int index = selectedIndex != NO_INDEX ? selectedIndex : geometry.indexAtTheta(currentTheta);
+        geometry = new DialGeometry(orientation);
+        renderer.setGeometry(geometry);
+        updateTicks(geometry.thetaForIndex(index));
+    }
+
+    public DialOrientation getOrientation() {
+        return geometry.getOrientation();
+    }
+
+    /**
+     * Lays the ticks out again for the current size and turns the dial to theta. The size
+     * of the view does not depend on the ticks, so this never requests a layout.
+     */
+
+    private void updateTicks(double theta) {
+        stopFling();
+        geometry.setTicks(adapter.getCount(), tickGapAngle);
+        if (isMeasured()) {
+            geometry.layout(getMeasuredWidth(), getMeasuredHeight(), centerPadding, textSize);
+            renderer.resizeLabelCache(lineInterval);
+            updateDialBand();
+        }
+        renderer.invalidateFace();
+        currentTheta = clampIfMeasured(theta);
+        selectedIndex = NO_INDEX;
+        updateSelectedIndex();
+        invalidate();
+    }
+
+    private boolean isMeasured() {
+        return getMeasuredWidth() > 0 || getMeasuredHeight() > 0;
+    }
+
+    /**
+     * The rotation limits are only known once measured; until then theta is kept as it is
+     */
+
+    private double clampIfMeasured(double theta) {
+        return isMeasured() ? geometry.clampTheta(theta) : theta;
+    }
+
+    /**
+     * @param renderMode either {@link #RENDER_MODE_IMMEDIATE} or {@link #RENDER_MODE_CACHED}
+     */
+
+    public void setRenderMode(int renderMode) {
+        if (this.renderMode != renderMode) {
+            this.renderMode = renderMode;
+            renderer.setCached(renderMode == RENDER_MODE_CACHED);
+            invalidate();
+        }
+    }
+
+    public int getRenderMode() {
+        return renderMode;
+    }
+
+    /**
+     * @param labelMode either {@link #LABEL_MODE_TEXT} or {@link #LABEL_MODE_ATLAS}
+     */
+
+    public void setLabelMode(int labelMode) {
+        if (renderer.getLabelMode() != labelMode) {
+            renderer.setLabelMode(labelMode);
+            invalidate();
+        }
+    }
+
+    public int getLabelMode() {
+        return renderer.getLabelMode();
+    }
+
+    /**
+     * Every tick and label is always drawn
+     */
+    public static final int LOD_MODE_OFF = 0;
+
+    /**
+     * Minor ticks and labels fade out above {@link #setLodVelocities(float, float) the minor
+     * velocity}, and major ticks above the major one, so a fast dial only draws what can
+     * still be read. Detail blends back in as the dial slows down.
+     */
+    public static final int LOD_MODE_VELOCITY = 1;
+
+    /**
+     * Like {@link #LOD_MODE_VELOCITY}, with both velocities lowered while frames take longer
+     * to draw than the frame budget, and raised back to the configured ones when they do not
+     */
+    public static final int LOD_MODE_AUTO = 2;
+
+    private static final float DEFAULT_LOD_MINOR_VELOCITY = 4f;
+    private static final float DEFAULT_LOD_MAJOR_VELOCITY = 12f;
+    private static final int DEFAULT_LOD_FRAME_BUDGET_MS = 8;
+
+    /**
+     * Time over which the measured angular velocity follows the real one
+     */
+    private static final double LOD_SMOOTHING_SECS = 0.1;
+
+    /**
+     * Lowest share of the configured velocities the auto mode goes down to
+     */
+    private static final float MIN_LOD_SCALE = 0.05f;
+
+    private int lodMode = LOD_MODE_OFF;
+    private float lodMinorVelocity = DEFAULT_LOD_MINOR_VELOCITY;
+    private float lodMajorVelocity = DEFAULT_LOD_MAJOR_VELOCITY;
+    private long lodFrameBudgetNanos = DEFAULT_LOD_FRAME_BUDGET_MS * 1000000L;
+    private float lodScale = 1;
+    private double angularVelocity;
+    private long lastDrawNanos;
+    private float minorDetail = 1;
+    private float majorDetail = 1;
+
+
+    /**
+     * @param lodMode one of {@link #LOD_MODE_OFF}, {@link #LOD_MODE_VELOCITY} or
+     *                {@link #LOD_MODE_AUTO}
+     */
+
+    public void setLodMode(int lodMode) {
+        if (this.lodMode != lodMode) {
+            this.lodMode = lodMode;
+            lodScale = 1;
+            invalidate();
+        }
+    }
+
+    public int getLodMode() {
+        return lodMode;
+    }
+
+    /**
+     * @param minorVelocity angular velocity, in radians per second, above which minor ticks
+     *                      and labels are gone
+     * @param majorVelocity angular velocity above which major ticks are gone too
+     */
+
+    public void setLodVelocities(float minorVelocity, float majorVelocity) {
+        lodMinorVelocity = minorVelocity;
+        lodMajorVelocity = majorVelocity;
+    }
+
+    /**
+     * @param budgetMs draw time per frame {@link #LOD_MODE_AUTO} aims to stay under
+     */
+
+    public void setLodFrameBudget(int budgetMs) {
+        lodFrameBudgetNanos = budgetMs * 1000000L;
+    }
+
+    /**
+     * Measures how fast the dial turned since the previous draw, whatever moved it, and
+     * works out the detail to draw at that speed
+     *
+     * @param now time of this draw
+     */
+
+    private void updateDetail(long now) {
+        if (lodMode == LOD_MODE_OFF) {
+            minorDetail = 1;
+            majorDetail = 1;
+            return;
+        }
+        if (lastDrawNanos != 0 && !Double.isNaN(drawnTheta)) {
+            double secs = (now - lastDrawNanos) / 1000000000d;
+            double velocity = secs > 0 ? Math.abs(currentTheta - drawnTheta) / secs : 0;
+            angularVelocity += (velocity - angularVelocity) * Math.min(1, secs / LOD_SMOOTHING_SECS);
+        }
+        lastDrawNanos = now;
+        minorDetail = detailAt(lodMinorVelocity * lodScale);
+        majorDetail = detailAt(lodMajorVelocity * lodScale);
+    }
+
+    /**
+     * @return 1 up to half the threshold velocity, falling linearly to 0 at the threshold
+     */
+
+    private float detailAt(float threshold) {
+        if (threshold <= 0) {
+            return 1;
+        }
+        return (float) Math.max(0, Math.min(1, 2 - 2 * angularVelocity / threshold));
+    }
+
+    /**
+     * Lowers the velocities at which detail drops while the dial moves and frames run over
+     * budget, and slowly raises them back otherwise
+     */
+
+    private void adjustDetailBudget(long drawNanos) {
+        if (drawNanos > lodFrameBudgetNanos && angularVelocity > 0) {
+            lodScale = Math.max(MIN_LOD_SCALE, lodScale * 0.8f);
+        } else {
+            lodScale = Math.min(1, lodScale * 1.05f);
+        }
+    }
+
+    private DialMetrics metrics;
+    private long lastFlingFrameNanos;
+
+    /**
+     * @param metrics collects draw and fling frame timing from now on, or null to stop
+     */
+
+    public void setMetrics(DialMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public DialMetrics getMetrics() {
+        return metrics;
     }
 
     public DialView(Context context, AttributeSet attrs) {
@@ -112,52 +624,156 @@ public class DialView extends View {
     private float initVelocity = 0.5f;
 
     /**
-     * Physics implementation
+     * Physics implementation, stepped once per display frame using the vsync timestamp
      */
 
-    Runnable dynamicsRunnable = new Runnable() {
+    Choreographer.FrameCallback dynamicsFrameCallback = new Choreographer.FrameCallback() {
         @Override
-        public void run() {
+        public void doFrame(long frameTimeNanos) {
+            if (!isOnScreen()) {
+                finishMotion();
+                return;
+            }
             if (Math.abs(initVelocity) < VELOCITY_THRESHOLD) {
+                // the finger lifted without a fling, or the fling slowed down to a stop
+                motion = MOTION_NONE;
+                settle();
                 return;
             }
-            long newTime = System.nanoTime();
-            long deltaNano = (newTime - currentTime);
-            double deltaSecs = ((double) deltaNano) / 1000000000;
-            currentTime = newTime;
-            float finalVelocity;
-            if (initVelocity > 0) {
-                finalVelocity = (float) (initVelocity - deceleration * deltaSecs);
+            Trace.beginSection("DialView#fling");
+            recordFlingFrame(frameTimeNanos);
+            // the first vsync after the finger lifts may be stamped before the lift itself
+            double deltaSecs = Math.max(0, ((double) (frameTimeNanos - currentTime)) / 1000000000);
+            currentTime = Math.max(currentTime, frameTimeNanos);
+
+            // integrate the constant deceleration exactly over the frame, stopping the dial
+            // part way through it if needed, so the path does not depend on the frame rate
+            rotate(DialGeometry.flingDistance(initVelocity, deceleration, deltaSecs));
+            initVelocity = (float) DialGeometry.flingVelocityAfter(initVelocity, deceleration, deltaSecs);
+            if (initVelocity != 0) {
+                postMotionFrame(this);
             } else {
-                finalVelocity = (float) (initVelocity + deceleration * deltaSecs);
+                motion = MOTION_NONE;
+                settle();
             }
-            if (initVelocity * finalVelocity < 0) {
+            Trace.endSection();
+        }
+    };
+
+    /**
+     * The fling decelerates freely and stops wherever its velocity runs out
+     */
+    public static final int FLING_MODE_FREE = 0;
+
+    /**
+     * The tick the fling lands on is resolved when the finger lifts, and the dial follows
+     * a closed-form deceleration curve that stops exactly on it
+     */
+    public static final int FLING_MODE_SNAP = 1;
+
+    /**
+     * How long the dial takes to settle on a tick when there is no fling to carry it there
+     */
+    private static final double SNAP_SETTLE_SECS = 0.25;
+
+    private int flingMode = FLING_MODE_FREE;
+    private double snapStartTheta;
+    private double snapTargetTheta;
+    private double snapDurationSecs;
+    private OnFlingTargetResolvedListener onFlingTargetResolvedListener;
+
+    /**
+     * Which of the frame callbacks is moving the dial, if any
+     */
+    private static final int MOTION_NONE = 0;
+    private static final int MOTION_FREE_FLING = 1;
+    private static final int MOTION_SNAP_FLING = 2;
+    private static final int MOTION_ANIMATION = 3;
+    private int motion = MOTION_NONE;
+
+    /**
+     * Group stepping the motion of this dial from its own frame callback, and the callback
+     * it runs for this dial on its next frame
+     */
+    private DialGroup group;
+    private Choreographer.FrameCallback groupFrameCallback;
+
+    /**
+     * @param flingMode either {@link #FLING_MODE_FREE} or {@link #FLING_MODE_SNAP}
+     */
+
+    public void setFlingMode(int flingMode) {
+        this.flingMode = flingMode;
+    }
+
+    public int getFlingMode() {
+        return flingMode;
+    }
+
+    public void setOnFlingTargetResolvedListener(OnFlingTargetResolvedListener listener) {
+        this.onFlingTargetResolvedListener = listener;
+    }
+
+    /**
+     * Eases the dial from {@link #snapStartTheta} to {@link #snapTargetTheta} with a constant
+     * deceleration, so the curve starts at the release velocity and ends at rest on the tick
+     */
+
+    Choreographer.FrameCallback snapFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!isOnScreen()) {
+                finishMotion();
                 return;
             }
-            rotate(finalVelocity * deltaSecs);
-            invalidate();
-            DialView.this.postDelayed(dynamicsRunnable, 1000 / 60);
-            initVelocity = finalVelocity;
+            Trace.beginSection("DialView#fling");
+            recordFlingFrame(frameTimeNanos);
+            double elapsedSecs = Math.max(0, ((double) (frameTimeNanos - currentTime)) / 1000000000);
+            double theta = snapTargetTheta;
+            if (elapsedSecs < snapDurationSecs) {
+                double remaining = 1 - elapsedSecs / snapDurationSecs;
+                theta = snapStartTheta + (snapTargetTheta - snapStartTheta) * (1 - remaining * remaining);
+            }
+            rotate(theta - currentTheta);
+            if (elapsedSecs < snapDurationSecs) {
+                postMotionFrame(this);
+            } else {
+                motion = MOTION_NONE;
+                settle();
+            }
+            Trace.endSection();
         }
     };
 
+    /**
+     * Counts the display frames since the previous fling step, so frames the fling missed
+     * show up in the metrics
+     *
+     * @param frameTimeNanos vsync time of the frame being handled
+     */
+
+    private void recordFlingFrame(long frameTimeNanos) {
+        if (metrics == null) {
+            return;
+        }
+        int framesElapsed = 1;
+        if (lastFlingFrameNanos != 0) {
+            Display display = getDisplay();
+            float refreshRate = display != null ? display.getRefreshRate() : 60f;
+            double frameIntervalNanos = 1000000000d / refreshRate;
+            framesElapsed = (int) Math.max(1, Math.round((frameTimeNanos - lastFlingFrameNanos) / frameIntervalNanos));
+        }
+        lastFlingFrameNanos = frameTimeNanos;
+        metrics.recordFlingFrame(framesElapsed);
+    }
+
     /**
      * @param attrs   are the attributes containing the values given by user
      * @param context context of the activity to use this view class
      */
 
     private void init(AttributeSet attrs, Context context) {
-        paintInnerCircle = new Paint();
-        paintArc = new Paint();
-        paintLines = new Paint();
-        paintText = new Paint();
-
-        paintArc.setStyle(Paint.Style.STROKE);
-        paintArc.setPathEffect(new DashPathEffect(new float[]{5, 10}, 0));
-        paintLines.setAntiAlias(true);
-        paintText.setTextAlign(Paint.Align.RIGHT);
-
-
+        int labelMode = LABEL_MODE_TEXT;
         if (attrs != null) {
             TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.DialView);
             lineInterval = typedArray.getInt(R.styleable.DialView_lineInterval, 0);
@@ -167,6 +783,7 @@ public class DialView extends View {
             centerPadding = typedArray.getInt(R.styleable.DialView_centerPadding, 0);
             textSize = typedArray.getInt(R.styleable.DialView_textSize, 0);
             dialDirection = typedArray.getInt(R.styleable.DialView_dialDirection, 0);
+            dialAngle = typedArray.getFloat(R.styleable.DialView_dialAngle, Float.NaN);
             tickGapAngle = ((double) typedArray.getInt(R.styleable.DialView_tickGapAngle, 0)
                     / (double) 180) * PI;
             startColor = typedArray.getColor(R.styleable.DialView_startColor, 0);
@@ -174,6 +791,17 @@ public class DialView extends View {
             paintLineColor = typedArray.getColor(R.styleable.DialView_paintLineColor, 0);
             paintTextColor = typedArray.getColor(R.styleable.DialView_paintTextColor, 0);
             paintArcColor = typedArray.getColor(R.styleable.DialView_paintArcColor, 0);
+            renderMode = typedArray.getInt(R.styleable.DialView_renderMode, RENDER_MODE_IMMEDIATE);
+            touchPrediction = typedArray.getBoolean(R.styleable.DialView_touchPrediction, false);
+            flingMode = typedArray.getInt(R.styleable.DialView_flingMode, FLING_MODE_FREE);
+            labelMode = typedArray.getInt(R.styleable.DialView_labelMode, LABEL_MODE_TEXT);
+            lodMode = typedArray.getInt(R.styleable.DialView_lodMode, LOD_MODE_OFF);
+            lodMinorVelocity = typedArray.getFloat(R.styleable.DialView_lodMinorVelocity,
+                    DEFAULT_LOD_MINOR_VELOCITY);
+            lodMajorVelocity = typedArray.getFloat(R.styleable.DialView_lodMajorVelocity,
+                    DEFAULT_LOD_MAJOR_VELOCITY);
+            lodFrameBudgetNanos = typedArray.getInt(R.styleable.DialView_lodFrameBudget,
+                    DEFAULT_LOD_FRAME_BUDGET_MS) * 1000000L;
             typedArray.recycle();
         }
 
@@ -182,44 +810,32 @@ public class DialView extends View {
             minValue = 0;
         }
 
-        paintInnerCircle.setStyle(Paint.Style.FILL);
-        paintInnerCircle.setFilterBitmap(true);
-        paintInnerCircle.setShader(new LinearGradient(0, 0, 0, getHeight(), endColor, startColor, Shader.TileMode.CLAMP));
-        paintLines.setColor(paintLineColor);
-        paintText.setColor(paintTextColor);
-        paintArc.setColor(paintArcColor);
+        adapter = new RangeDialAdapter(minValue, maxValue, leastCount, lineInterval);
+        renderer = new DialRenderer(adapter);
+        renderer.setLabelMode(labelMode);
+        renderer.setCached(renderMode == RENDER_MODE_CACHED);
+        geometry = new DialGeometry(Float.isNaN(dialAngle)
+                ? DialOrientation.forDirection(dialDirection) : DialOrientation.of(dialAngle, true));
+        geometry.setTicks(adapter.getCount(), tickGapAngle);
+        renderer.setGeometry(geometry);
+        currentTheta = geometry.getInitialTheta();
+        initTheta = currentTheta;
+
+        updateStyle();
+    }
 
-        switch (dialDirection) {
-            //for left
-            case 1:
-                currentTheta = 0;
-                initTheta = 0;
-                angleToCompare = 0;
-                break;
-            //for top
-            case 2:
-                currentTheta = PI / 2;
-                initTheta = PI / 2;
-                angleToCompare = 90;
-                break;
-            //for right
-            case 3:
-                currentTheta = PI;
-                initTheta = PI;
-                angleToCompare = 180;
-                break;
-            //for bottom
-            case 4:
-                currentTheta = PI * 3 / 2;
-                initTheta = PI * 3 / 2;
-                angleToCompare = 270;
-                break;
+    private void updateStyle() {
+        style = DialStyle.obtain(startColor, endColor, paintLineColor, paintTextColor,
+                paintArcColor, textSize);
+        paintInnerCircle = style.getInnerCirclePaint(getHeight());
+        paintArc = style.getArcPaint();
+        renderer.setStyle(style);
+    }
 
-            default:
-                // // TODO: 4/5/17 nothing
-                break;
-        }
-        paintText.setTextSize(textSize);
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        paintInnerCircle = style.getInnerCirclePaint(h);
     }
 
     /**
@@ -232,194 +848,107 @@ public class DialView extends View {
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        tickCount = ((maxValue - minValue) / leastCount) + 1;
-        maxAngleTheta = (((tickCount - 1) * tickGapAngle));
-        minAngleTheta = 0;
-
-        switch (dialDirection) {
-            // for left
-            case 1:
-                centerX = 0 - CENTER_OFFSET;
-                radius = getMeasuredHeight() / 2 - centerPadding;
-                centerY = getMeasuredHeight() / 2;
-                break;
-            // for top
-            case 2:
-                centerX = getMeasuredWidth() / 2;
-                radius = getMeasuredWidth() / 2 - centerPadding;
-                centerY = 0 - CENTER_OFFSET_VERTICAL;
-                break;
-            //for right
-            case 3:
-                centerX = getMeasuredWidth() + CENTER_OFFSET;
-                radius = getMeasuredHeight() / 2 - centerPadding;
-                centerY = getMeasuredHeight() / 2;
-                break;
-            //for bottom
-            case 4:
-                centerX = getMeasuredWidth() / 2;
-                radius = getMeasuredWidth() / 2 - centerPadding;
-                centerY = getMeasuredHeight() + CENTER_OFFSET_VERTICAL;
-                break;
-
-            default:
-                // // TODO: 4/5/17 nothing
-                break;
-        }
-    }
+        geometry.layout(getMeasuredWidth(), getMeasuredHeight(), centerPadding, textSize);
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-        makeRadGrad(canvas);
+        renderer.resizeLabelCache(lineInterval);
+        updateDialBand();
+        renderer.invalidateFace();
+        currentTheta = geometry.clampTheta(currentTheta);
+        updateSelectedIndex();
     }
 
     /**
-     * @param canvas to draw the circle and lines
+     * Works out which tick faces the selection angle straight from the current theta and
+     * notifies the listener only when it differs from the last one reported
      */
 
-    private void makeRadGrad(Canvas canvas) {
-        canvas.drawCircle(centerX, centerY, radius, paintInnerCircle);
-        canvas.drawCircle(centerX, centerY, radius, paintArc);
-
-        for (double i = minValue; i < tickCount; i++) {
-            double angle = i * tickGapAngle;
-
-            int lineHeight;
-            if (i % lineInterval == 0) {
-                lineHeight = 30;
-            } else {
-                lineHeight = 20;
-            }
-
-            double newTheta = 0;
-            if (angleToCompare == 0) {
-                //for left
-                newTheta = currentTheta - angle;
-            } else if (angleToCompare == 90) {
-                //for top
-                newTheta = angle + currentTheta;
-            } else if (angleToCompare == 180) {
-                //for right
-                newTheta = angle + currentTheta;
-            } else if (angleToCompare == 270) {
-                //for bottom
-                newTheta = angle + currentTheta;
+    private void updateSelectedIndex() {
+        if (tickGapAngle <= 0 || geometry.getTickCount() < 1) {
+            return;
+        }
+        int index = geometry.indexAtTheta(currentTheta);
+        if (index != selectedIndex) {
+            selectedIndex = index;
+            if (group != null) {
+                group.onMemberChanged();
             }
-
-            float startX = (float) (((radius + 10) * Math.cos(newTheta)) + centerX);
-            float startY = (float) (((radius + 10) * Math.sin(newTheta)) + centerY);
-
-            float endX = (float) (((radius + lineHeight) * Math.cos(newTheta)) + centerX);
-            float endY = (float) (((radius + lineHeight) * Math.sin(newTheta)) + centerY);
-
-            float textPointX = (float) (((radius + lineHeight + 10) * Math.cos(newTheta)) + centerX);
-            float textPointY = (float) (((radius + lineHeight + 10) * Math.sin(newTheta)) + centerY);
-
-            if (lineHeight == 30) {
-                addingTextValuesToDial(canvas, newTheta, (int) i, textPointX, textPointY);
+            if (onDialValueChangeListener != null) {
+                onDialValueChangeListener.onDialValueChanged(renderer.formatValue(index), index, maxValue);
             }
-
-            canvas.drawLine(startX, startY, endX, endY, paintLines);
-
-            int newThetaInDegree = (int) (newTheta / PI * 180);
-            NumberFormat formatter = new DecimalFormat("00");
-            String value = formatter.format(i);
-            switch (dialDirection) {
-                //for left
-                case 1:
-                    if (newThetaInDegree == angleToCompare) {
-                        if (onDialValueChangeListener != null) {
-                            onDialValueChangeListener.onDialValueChanged(value, maxValue);
-                        }
-                    }
-                    break;
-                //for top
-                case 2:
-                    if (newThetaInDegree == angleToCompare
-                            || newThetaInDegree < (angleToCompare + 0.2)) {
-                        if (onDialValueChangeListener != null) {
-                            onDialValueChangeListener.onDialValueChanged(value, maxValue);
-                        }
-                    }
-                    break;
-                //for right
-                case 3:
-                    if (newThetaInDegree == angleToCompare
-                            || newThetaInDegree < (angleToCompare + 0.2)) {
-                        if (onDialValueChangeListener != null) {
-                            onDialValueChangeListener.onDialValueChanged(value, maxValue);
-                        }
-                    }
-                    break;
-                //for bottom
-                case 4:
-                    if (newThetaInDegree == angleToCompare) {
-                        if (onDialValueChangeListener != null) {
-                            onDialValueChangeListener.onDialValueChanged(value, maxValue);
-                        }
-                    }
-                    break;
-
-                default:
-                    // // TODO: 4/5/17 nothing
-                    break;
+            if (onDialValueStreamListener != null && !sampleScheduled) {
+                sampleScheduled = true;
+                Choreographer.getInstance().postFrameCallback(sampleFrameCallback);
             }
         }
     }
 
-    /**
-     * @param canvas is the canvas on which the text will be drawn
-     * @param angle  is the angle at which the text is to be drawn
-     * @param value  is the difference from minimum value to max value of dial
-     *               divided by line interval
-     * @param startX starting x from where the text will start
-     * @param startY starting Y from where the text will start
-     */
-
-    private void addingTextValuesToDial(Canvas canvas, double angle,
-                                        int value, float startX, float startY) {
-        double newAngle = angle / PI * 180;
-        int angleInteger = (int) newAngle;
-        paintText.getTextBounds(String.valueOf(value), 0, 1, bounds);
-
-        // to be extracted afterwards when initialised by user
-        if (angleToCompare == 0) {
-            // for left
-            paintText.setTextAlign(Paint.Align.LEFT);
-            if (angleInteger <= angleToCompare) {
-                canvas.drawText(String.valueOf(value), startX, startY + bounds.height() * 2 / 3, paintText);
-            } else {
-                canvas.drawText(String.valueOf(value), startX, startY + bounds.height() / 2, paintText);
-            }
-        } else if (angleToCompare == 90) {
-            //for top
-            if (angleInteger >= angleToCompare && angleInteger < 360) {
-                canvas.drawText(String.valueOf(value), startX + 8 * 2 / 3, startY + 11 * 2 / 3, paintText);
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        Trace.beginSection("DialView#onDraw");
+        long drawStart = metrics != null || lodMode != LOD_MODE_OFF ? System.nanoTime() : 0;
+        renderer.resetCounters();
+        if (predictionOffset != 0) {
+            if (SystemClock.uptimeMillis() - predictedAtMillis > PREDICTION_TIMEOUT_MS) {
+                resetPrediction();
             } else {
-                canvas.drawText(String.valueOf(value), (float) (startX + 8 * 0.9), startY + 11 * 2 / 3, paintText);
+                // come back to drop the lead if the finger stops here
+                postInvalidateOnAnimation();
             }
-        } else if (angleToCompare == 180) {
-            // for right
-            if (angleInteger >= angleToCompare - (int) (lineInterval * (tickGapAngle * 180 / PI))) {
-                canvas.drawText(String.valueOf(value), startX, startY + bounds.height() / 2, paintText);
-            } else if (angleInteger < 180 - (int) (lineInterval * (tickGapAngle * 180 / PI))) {
-                canvas.drawText(String.valueOf(value), startX, startY + bounds.height() * 2 / 3, paintText);
+        }
+        updateDetail(drawStart);
+        makeRadGrad(canvas);
+        if (metrics != null || lodMode == LOD_MODE_AUTO) {
+            long drawNanos = System.nanoTime() - drawStart;
+            if (metrics != null) {
+                metrics.recordFrame(drawNanos, renderer.getTicksDrawn(), renderer.getLabelsDrawn());
             }
-        } else if (angleToCompare == 270) {
-            // for bottom
-            if (angleInteger >= angleToCompare && angleInteger < 360) {
-                canvas.drawText(String.valueOf(value), startX + 8 * 3 / 4, startY - 11 * 2 / 5, paintText);
-            } else {
-                canvas.drawText(String.valueOf(value), (float) (startX + 8 * 0.9), startY - 11 * 2 / 4, paintText);
-
+            if (lodMode == LOD_MODE_AUTO) {
+                adjustDetailBudget(drawNanos);
             }
         }
+        if (minorDetail < 1 || majorDetail < 1) {
+            // keep drawing while detail blends back in, even once the dial holds still
+            postInvalidateOnAnimation();
+        }
+        Trace.endSection();
     }
 
+    /**
+     * @param canvas to draw the circle and lines
+     */
+
+    private void makeRadGrad(Canvas canvas) {
+        double theta = displayTheta();
+        renderer.drawFrame(canvas, paintInnerCircle, theta, minorDetail, majorDetail);
+        if (renderer.getMaxLabelChars() > maxLabelChars) {
+            // a longer label than any before may reach past the band, so widen it and draw
+            // the whole dial again
+            maxLabelChars = renderer.getMaxLabelChars();
+            updateDialBand();
+            invalidate();
+        }
+        drawnTheta = theta;
+    }
 
     private float lastTouchXCircle;
     private float lastTouchYCircle;
+
+    /**
+     * Share of the gap to each new prediction the drawn lead closes per touch event
+     */
+    private static final double PREDICTION_EASING = 0.5;
+
+    private boolean touchPrediction;
+    private double predictionOffset;
+    private double predictedTheta = Double.NaN;
+    private double predictedFromTheta;
+    private long predictedAtMillis;
+
+    /**
+     * A finger held still sends no more events, so a lead older than this is dropped
+     */
+    private static final long PREDICTION_TIMEOUT_MS = 50;
     private float xcircle;
     private float ycircle;
 
@@ -451,66 +980,85 @@ public class DialView extends View {
         }
     }
 
-    private void duringTouch(final MotionEvent event) {
-        float eventX = event.getX();
-        float eventY = event.getY();
-
-        switch (dialDirection) {
-            //for left
-            case 1:
-                xcircle = eventX - centerX;
-                ycircle = centerY - eventY;
-                break;
-            //for top
-            case 2:
-                xcircle = eventX - centerX;
-                ycircle = centerY - eventY;
-                break;
-            //for right
-            case 3:
-                xcircle = centerX + eventX;
-                ycircle = centerY - eventY;
-                break;
-            //for bottom
-            case 4:
-                xcircle = eventX - centerX;
-                ycircle = centerY - eventY;
-                break;
+    /**
+     * @param event move event, walked through its batched historical samples so fast
+     *              sweeps are tracked point by point; the dial is rotated once per event
+     */
 
-            default:
-                // // TODO: 4/5/17 nothing
-                break;
+    private void duringTouch(final MotionEvent event) {
+        float lastX = lastTouchXCircle;
+        float lastY = lastTouchYCircle;
+        delta = 0;
+        for (int h = 0; h < event.getHistorySize(); h++) {
+            float x = geometry.touchX(event.getHistoricalX(h));
+            float y = geometry.touchY(event.getHistoricalY(h));
+            delta += geometry.touchDelta(lastX, lastY, x, y);
+            lastX = x;
+            lastY = y;
         }
+        xcircle = geometry.touchX(event.getX());
+        ycircle = geometry.touchY(event.getY());
+        delta += geometry.touchDelta(lastX, lastY, xcircle, ycircle);
 
-        double originalAngle = Math.atan2(lastTouchYCircle, lastTouchXCircle);
-        double newAngle = Math.atan2(ycircle, xcircle);
+        rotate(delta);
+        touchState = TOUCH_STATE_SCROLL;
+        processTouch(event);
+        if (touchPrediction) {
+            predictTouch(event);
+        }
+    }
 
-        switch (dialDirection) {
-            //for left
-            case 1:
-                delta = originalAngle - newAngle;
-                break;
-            //for top
-            case 2:
-                delta = originalAngle - newAngle;
-                break;
-            //for right
-            case 3:
-                delta = newAngle - originalAngle;
-                break;
-            //for bottom
-            case 4:
-                delta = originalAngle - newAngle;
-                break;
+    /**
+     * Leads the drawn dial ahead of the finger by the angle it turns in one display frame,
+     * measured by the velocity tracker at the latest touch point. The lead is eased towards
+     * each new estimate, so a sample that disagrees with the prediction bends the dial back
+     * over a few events instead of making it jump.
+     */
 
-            default:
-                //// TODO: 4/5/17 nothing
-                break;
+    private void predictTouch(final MotionEvent event) {
+        if (metrics != null && !Double.isNaN(predictedTheta)) {
+            metrics.recordTouchPrediction(Math.abs(predictedTheta - currentTheta),
+                    Math.abs(predictedFromTheta - currentTheta));
         }
+        velocityTracker.computeCurrentVelocity(1);
+        double velocity = geometry.touchAngularVelocity(xcircle, ycircle,
+                velocityTracker.getXVelocity(), velocityTracker.getYVelocity());
+        Display display = getDisplay();
+        float refreshRate = display != null ? display.getRefreshRate() : 60f;
+        double lead = velocity * 1000 / refreshRate;
+        predictionOffset += (lead - predictionOffset) * PREDICTION_EASING;
+        predictedFromTheta = currentTheta;
+        predictedTheta = displayTheta();
+        predictedAtMillis = event.getEventTime();
+        invalidateDial();
+    }
 
-        rotate(delta);
-        touchState = TOUCH_STATE_SCROLL;
-        processTouch(event);
+    /**
+     * @return rotation to draw the dial at, ahead of the touch when it is being predicted
+     */
+
+    private double displayTheta() {
+        return predictionOffset == 0 ? currentTheta : geometry.clampTheta(currentTheta + predictionOffset);
+    }
+
+    private void resetPrediction() {
+        predictionOffset = 0;
+        predictedTheta = Double.NaN;
+    }
+
+    /**
+     * @param enabled whether a dragged dial is drawn where the finger will be on the next
+     *                frame rather than where it was last reported; see
+     *                {@link DialMetrics#getMeanPredictionError()} for how well that works
+     */
+
+    public void setTouchPrediction(boolean enabled) {
+        touchPrediction = enabled;
+        resetPrediction();
+    }
+
+    public boolean isTouchPrediction() {
+        return touchPrediction;
     }
 
     /**
@@ -520,25 +1068,11 @@ public class DialView extends View {
 
     private void startTouch(final MotionEvent event) {
         // user is touching the list -> no more fling
-        removeCallbacks(dynamicsRunnable);
-
-        if (angleToCompare == 0) {
-            //for left
-            lastTouchXCircle = event.getX() - centerX;
-            lastTouchYCircle = centerY - event.getY();
-        } else if (angleToCompare == 90) {
-            //for top
-            lastTouchXCircle = event.getX() - centerX;
-            lastTouchYCircle = centerY - event.getY();
-        } else if (angleToCompare == 180) {
-            //for right
-            lastTouchXCircle = centerX + event.getX();
-            lastTouchYCircle = centerY - event.getY();
-        } else if (angleToCompare == 270) {
-            //for bottom
-            lastTouchXCircle = event.getX() - centerX;
-            lastTouchYCircle = centerY - event.getY();
-        }
+        stopFling();
+        resetPrediction();
+
+        lastTouchXCircle = geometry.touchX(event.getX());
+        lastTouchYCircle = geometry.touchY(event.getY());
         // obtain a velocity tracker and feed it its first event
         velocityTracker = VelocityTracker.obtain();
         velocityTracker.addMovement(event);
@@ -558,48 +1092,64 @@ public class DialView extends View {
 
     private void rotate(double delta) {
         currentTheta += delta;
-
-        if (angleToCompare == 0) {
-            if (currentTheta > minAngleTheta && currentTheta < (maxAngleTheta)) {
-                invalidate();
-                initTheta += delta;
-                lastTouchXCircle = xcircle;
-                lastTouchYCircle = ycircle;
-            } else {
-                if (currentTheta < minAngleTheta) {
-                    currentTheta = minAngleTheta;
-                } else if (currentTheta > maxAngleTheta) {
-                    currentTheta = maxAngleTheta;
-                }
-            }
-        } else if (angleToCompare == 180 || angleToCompare == 270 || angleToCompare == 90) {
-            if ((currentTheta <= minAngleTheta + (angleToCompare * PI / 180)
-                    && currentTheta >= (angleToCompare * PI / 180)
-                    - (maxAngleTheta))) {
-                invalidate();
-                initTheta += delta;
-                lastTouchXCircle = xcircle;
-                lastTouchYCircle = ycircle;
-            } else {
-                if (angleToCompare == 90) {
-                    if (currentTheta > PI / 2)
-                        currentTheta = PI / 2;
-                    else if (currentTheta < (angleToCompare * PI / 180) - maxAngleTheta)
-                        currentTheta = (angleToCompare * PI / 180) - maxAngleTheta;
-                } else if (angleToCompare == 180) {
-                    if (currentTheta > PI) {
-                        currentTheta = PI;
-                    } else if (currentTheta < (angleToCompare * PI / 180) - maxAngleTheta) {
-                        currentTheta = (angleToCompare * PI / 180) - maxAngleTheta;
-                    }
-                } else if (angleToCompare == 270) {
-                    if (currentTheta > 3 * PI / 2)
-                        currentTheta = 3 * PI / 2;
-                    else if (currentTheta < (angleToCompare * PI / 180) - maxAngleTheta)
-                        currentTheta = (angleToCompare * PI / 180) - maxAngleTheta;
-                }
+        boolean overshooting = false;
+        if (group != null && isMeasured() && !geometry.isWithinRange(currentTheta)) {
+            // a dial linked to a larger one wraps round half a tick gap past its end, keeping
+            // the remainder and carrying the turns over to the larger dial
+            int turns = geometry.wrapTurns(currentTheta);
+            if (turns != 0 && group.carry(this, turns)) {
+                currentTheta = geometry.wrapTheta(currentTheta, turns);
             }
+            // short of the wrap point it runs on past the end rather than being clamped, so
+            // the overshoot adds up over frames however the fling is cut into them
+            overshooting = geometry.wrapTurns(currentTheta) == 0
+                    && group.canCarry(this, geometry.endPassed(currentTheta));
+        }
+
+        if (overshooting || geometry.isWithinRange(currentTheta)) {
+            initTheta += delta;
+            lastTouchXCircle = xcircle;
+            lastTouchYCircle = ycircle;
+        } else {
+            currentTheta = clampIfMeasured(currentTheta);
+        }
+        invalidateDial();
+        updateSelectedIndex();
+    }
+
+    /**
+     * Invalidates only the band the ticks and labels are drawn in, and nothing at all while
+     * the ticks have moved less than {@link #SUBPIXEL_THRESHOLD} since the last draw
+     */
+
+    private void invalidateDial() {
+        double moved = Math.abs(displayTheta() - drawnTheta) * (geometry.getRadius() + TICK_BAND_OUTER);
+        if (moved < SUBPIXEL_THRESHOLD) {
+            return;
+        }
+        if (dialBand.isEmpty()) {
+            invalidate();
+        } else {
+            invalidate(dialBand);
+        }
+    }
+
+    /**
+     * Works out {@link #dialBand} from the visible arc, padded by the longest label drawn so far
+     */
+
+    private void updateDialBand() {
+        if (!isMeasured()) {
+            return;
         }
+        int radius = geometry.getRadius();
+        geometry.ringBounds(radius + TICK_BAND_INNER, radius + TICK_BAND_OUTER,
+                getMeasuredWidth(), getMeasuredHeight(), ringBounds);
+        int padding = (int) Math.ceil(style.getEmWidth() * Math.max(1, maxLabelChars)) + textSize;
+        dialBand.set(Math.max(0, ringBounds[0] - padding), Math.max(0, ringBounds[1] - padding),
+                Math.min(getMeasuredWidth(), ringBounds[2] + padding),
+                Math.min(getMeasuredHeight(), ringBounds[3] + padding));
+        renderer.setBand(dialBand);
     }
 
     /**
@@ -617,24 +1167,8 @@ public class DialView extends View {
                 float velocity = 0;
                 if (touchState == TOUCH_STATE_SCROLL) {
                     velocityTracker.computeCurrentVelocity(RADIANS_PER_SECOND);
-                    switch (dialDirection) {
-                        //for left
-                        case 1:
-                            velocity = -1 * velocityTracker.getYVelocity();
-                            break;
-                        //for top
-                        case 2:
-                            velocity = -1 * velocityTracker.getXVelocity();
-                            break;
-                        //for right
-                        case 3:
-                            velocity = -1 * velocityTracker.getYVelocity();
-                            break;
-                        //for bottom
-                        case 4:
-                            velocity = -1 * velocityTracker.getXVelocity();
-                            break;
-                    }
+                    velocity = geometry.flingVelocity(velocityTracker.getXVelocity(),
+                            velocityTracker.getYVelocity());
                 }
                 endTouch(velocity);
                 break;
@@ -651,28 +1185,306 @@ public class DialView extends View {
         velocityTracker.recycle();
         velocityTracker = null;
         currentTime = System.nanoTime();
-        if (angleToCompare == 0) {
-            //for left
-            initVelocity = -1 * velocity;
-        } else if (angleToCompare == 90) {
-            //for top
-            initVelocity = velocity;
-        } else if (angleToCompare == 180) {
-            //for right
-            initVelocity = velocity;
-        } else if (angleToCompare == 270) {
-            //for bottom
-            initVelocity = -1 * velocity;
-        }
-
-        post(dynamicsRunnable);
+        lastFlingFrameNanos = 0;
+        initVelocity = velocity;
+        // the fling carries on from where the finger really was
+        resetPrediction();
+
+        stopFling();
+        if (flingMode == FLING_MODE_SNAP && tickGapAngle > 0 && geometry.getTickCount() >= 1) {
+            startSnapFling();
+        } else {
+            motion = MOTION_FREE_FLING;
+            postMotionFrame(dynamicsFrameCallback);
+        }
 
         // reset touch state
         touchState = TOUCH_STATE_RESTING;
     }
 
+    /**
+     * Cancels a running free or snap fling, or an animation, where it is
+     */
+
+    private void stopFling() {
+        Choreographer.getInstance().removeFrameCallback(dynamicsFrameCallback);
+        Choreographer.getInstance().removeFrameCallback(snapFrameCallback);
+        Choreographer.getInstance().removeFrameCallback(animateFrameCallback);
+        groupFrameCallback = null;
+        motion = MOTION_NONE;
+    }
+
+    /**
+     * Posts a frame callback moving the dial, to the {@link DialGroup} driving it if any
+     */
+
+    private void postMotionFrame(Choreographer.FrameCallback callback) {
+        if (group != null) {
+            groupFrameCallback = callback;
+            group.scheduleFrame();
+        } else {
+            Choreographer.getInstance().postFrameCallback(callback);
+        }
+    }
+
+    /**
+     * @param group drives the frame callbacks of this dial from now on, or null to go back
+     *              to posting them itself; any running fling or animation is stopped
+     */
+
+    void setGroup(DialGroup group) {
+        stopFling();
+        this.group = group;
+    }
+
+    /**
+     * Runs the frame callback posted through the group since its last frame, if any
+     */
+
+    void doGroupFrame(long frameTimeNanos) {
+        Choreographer.FrameCallback callback = groupFrameCallback;
+        groupFrameCallback = null;
+        if (callback != null) {
+            callback.doFrame(frameTimeNanos);
+        }
+    }
+
+    /**
+     * Turns the dial by whole ticks for {@link DialGroup}, which carries the turns of a linked
+     * dial over to it. Unlike {@link #setSelectedIndex(int)} a fling or animation of this dial
+     * carries on from the shifted rotation, nothing is settled, and any rotation part way
+     * between two ticks is kept.
+     *
+     * @param ticks ticks to move on, negative to move back
+     */
+
+    void shiftTicks(int ticks) {
+        double delta = geometry.thetaForIndex(ticks) - geometry.thetaForIndex(0);
+        currentTheta = clampIfMeasured(currentTheta + delta);
+        initTheta += delta;
+        snapStartTheta += delta;
+        snapTargetTheta = clampIfMeasured(snapTargetTheta + delta);
+        animateStartTheta += delta;
+        animateTargetTheta = clampIfMeasured(animateTargetTheta + delta);
+        invalidateDial();
+        updateSelectedIndex();
+    }
+
+    /**
+     * @return value of the selected tick, or null before the dial has been measured
+     */
+
+    String getSelectedValue() {
+        return selectedIndex != NO_INDEX ? renderer.formatValue(selectedIndex) : null;
+    }
+
+    /**
+     * Jumps a running fling or animation straight to where it would have come to rest and
+     * drops every pending frame callback, so a hidden or detached dial does no more work and
+     * holds no reference from the {@link Choreographer}
+     */
+
+    private void finishMotion() {
+        double restTheta = currentTheta;
+        if (motion == MOTION_FREE_FLING && Math.abs(initVelocity) >= VELOCITY_THRESHOLD) {
+            restTheta += DialGeometry.flingDistance(initVelocity, deceleration,
+                    DialGeometry.flingStopSecs(initVelocity, deceleration));
+        } else if (motion == MOTION_SNAP_FLING) {
+            restTheta = snapTargetTheta;
+        } else if (motion == MOTION_ANIMATION) {
+            restTheta = animateTargetTheta;
+        }
+        boolean moving = motion != MOTION_NONE;
+        stopFling();
+        initVelocity = 0;
+        if (moving) {
+            if (group != null && isMeasured()) {
+                // a linked dial carries whatever turns are left over to the larger one
+                rotate(restTheta - currentTheta);
+            } else {
+                // set straight rather than rotated to, so a dial that was never laid out
+                // keeps its target until onMeasure knows the range
+                currentTheta = clampIfMeasured(restTheta);
+                updateSelectedIndex();
+                invalidateDial();
+            }
+            settle();
+        }
+        if (sampleScheduled) {
+            Choreographer.getInstance().removeFrameCallback(sampleFrameCallback);
+            sampleScheduled = false;
+            deliverSample();
+        }
+    }
+
+    /**
+     * @return whether any of the dial can be seen; checked on each frame of a fling, since
+     * scrolling a list does not tell its children they went off screen
+     */
+
+    private boolean isOnScreen() {
+        if (!isMeasured()) {
+            // a dial animated before its first layout is about to be shown, not hidden
+            return true;
+        }
+        return isShown() && getLocalVisibleRect(visibleRect);
+    }
+
+    /**
+     * @return whether a fling, animation or value sample is still waiting for a frame
+     */
+
+    boolean hasPendingFrames() {
+        return motion != MOTION_NONE || sampleScheduled || groupFrameCallback != null;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        finishMotion();
+        if (velocityTracker != null) {
+            // a gesture cut off by the detach never gets its up
+            velocityTracker.recycle();
+            velocityTracker = null;
+            touchState = TOUCH_STATE_RESTING;
+            resetPrediction();
+        }
+    }
+
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        // also called from the View constructor, before the dial is set up
+        if (renderer != null && visibility != VISIBLE) {
+            finishMotion();
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (renderer != null && visibility != VISIBLE) {
+            finishMotion();
+        }
+    }
+
+    /**
+     * Resolves the tick the fling will rest on from the release velocity and starts easing
+     * towards it. Targets past either end of the dial are clamped to the end tick.
+     */
+
+    private void startSnapFling() {
+        int targetIndex = geometry.flingTargetIndex(currentTheta, initVelocity, deceleration);
+        snapStartTheta = currentTheta;
+        snapTargetTheta = geometry.thetaForIndex(targetIndex);
+
+        double distance = snapTargetTheta - snapStartTheta;
+        if (distance * initVelocity > 0) {
+            // a constant deceleration covering the distance from the release velocity, kept
+            // from crawling when a slow release still has most of a tick gap to cover
+            snapDurationSecs = Math.min(2 * distance / initVelocity,
+                    Math.max(SNAP_SETTLE_SECS, 2 * Math.abs(initVelocity) / deceleration));
+        } else {
+            snapDurationSecs = SNAP_SETTLE_SECS;
+        }
+        initVelocity = 0;
+
+        if (onFlingTargetResolvedListener != null) {
+            onFlingTargetResolvedListener.onFlingTargetResolved(renderer.formatValue(targetIndex), targetIndex, maxValue);
+        }
+        motion = MOTION_SNAP_FLING;
+        postMotionFrame(snapFrameCallback);
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        state.currentTheta = currentTheta;
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        stopFling();
+        currentTheta = clampIfMeasured(savedState.currentTheta);
+        updateSelectedIndex();
+        invalidate();
+    }
+
+    /**
+     * Rotation of the dial, kept across configuration changes and process death
+     */
+
+    static class SavedState extends BaseSavedState {
+        double currentTheta;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            currentTheta = in.readDouble();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeDouble(currentTheta);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
     public interface OnDialValueChangeListener {
-        void onDialValueChanged(String value, int maxValue);
+        /**
+         * @param value    label of the selected tick
+         * @param index    index of the selected tick in the adapter
+         * @param maxValue the maxValue attribute of the dial
+         */
+        void onDialValueChanged(String value, int index, int maxValue);
+    }
+
+    /**
+     * Throttled alternative to {@link OnDialValueChangeListener}, for consumers doing real
+     * work per value. Look the labels up through {@link #getAdapter()} if needed.
+     */
+
+    public interface OnDialValueStreamListener {
+        /**
+         * Called at most once per frame while the selected tick changes, never twice in a
+         * row with the same index
+         */
+        void onDialValueSampled(int index);
+
+        /**
+         * Called when a fling or snap ends, or the finger lifts without a fling, with the
+         * tick the dial rests on
+         */
+        void onDialSettled(int index);
+    }
+
+    public interface OnFlingTargetResolvedListener {
+        /**
+         * Called as soon as a fling starts, with the value it is going to stop on
+         */
+        void onFlingTargetResolved(String value, int index, int maxValue);
     }
 }
 
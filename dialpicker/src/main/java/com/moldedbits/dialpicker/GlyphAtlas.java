@@ -0,0 +1,82 @@
+package com.moldedbits.dialpicker;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * The digits, minus sign and decimal point rasterised once into a bitmap with the text paint
+ * of a {@link DialStyle}. Numeric labels are then drawn by copying each glyph out of the
+ * bitmap, so no text is shaped or measured while the dial turns. Where each glyph goes is
+ * worked out by the {@link GlyphLayout} of the atlas.
+ */
+
+final class GlyphAtlas {
+
+    private static final String GLYPHS = GlyphLayout.GLYPHS;
+
+    /**
+     * Spare pixels between glyphs so filtering never bleeds a neighbour in
+     */
+    private static final int GLYPH_GAP = 2;
+
+    private final Bitmap bitmap;
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final GlyphLayout layout;
+    private final int[] glyphLeft = new int[GLYPHS.length()];
+    private final int glyphHeight;
+    private final Rect src = new Rect();
+    private final RectF dst = new RectF();
+
+    /**
+     * @param textPaint paint the labels would otherwise be drawn with
+     */
+
+    GlyphAtlas(Paint textPaint) {
+        Paint.Align align = textPaint.getTextAlign();
+        Paint paint = new Paint(textPaint);
+        paint.setTextAlign(Paint.Align.LEFT);
+        Paint.FontMetrics metrics = paint.getFontMetrics();
+        int glyphTop = (int) Math.floor(metrics.ascent);
+        glyphHeight = (int) Math.ceil(metrics.descent) - glyphTop;
+
+        float[] glyphAdvance = new float[GLYPHS.length()];
+        int width = GLYPH_GAP;
+        for (int i = 0; i < GLYPHS.length(); i++) {
+            glyphLeft[i] = width;
+            glyphAdvance[i] = paint.measureText(GLYPHS.substring(i, i + 1));
+            width += (int) Math.ceil(glyphAdvance[i]) + GLYPH_GAP;
+        }
+        float anchor = align == Paint.Align.RIGHT ? 1 : align == Paint.Align.CENTER ? 0.5f : 0;
+        layout = new GlyphLayout(glyphAdvance, anchor, glyphTop);
+
+        bitmap = Bitmap.createBitmap(width, Math.max(1, glyphHeight), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        for (int i = 0; i < GLYPHS.length(); i++) {
+            canvas.drawText(GLYPHS.substring(i, i + 1), glyphLeft[i], -glyphTop, paint);
+        }
+    }
+
+    GlyphLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Copies one glyph out of the atlas
+     *
+     * @param glyph index of the glyph in {@link GlyphLayout#GLYPHS}
+     * @param left  left of the glyph box
+     * @param top   top of the glyph box
+     * @param alpha opacity to draw the glyph with
+     */
+
+    void drawGlyph(Canvas canvas, int glyph, float left, float top, int alpha) {
+        bitmapPaint.setAlpha(alpha);
+        int glyphWidth = (int) Math.ceil(layout.advance(glyph));
+        src.set(glyphLeft[glyph], 0, glyphLeft[glyph] + glyphWidth, glyphHeight);
+        dst.set(left, top, left + glyphWidth, top + glyphHeight);
+        canvas.drawBitmap(bitmap, src, dst, bitmapPaint);
+    }
+}
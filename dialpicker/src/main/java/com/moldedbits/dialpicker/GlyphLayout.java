@@ -0,0 +1,93 @@
+package com.moldedbits.dialpicker;
+
+/**
+ * Where the glyphs of a {@link GlyphAtlas} go when a numeric label is drawn from it. Kept free
+ * of android classes, so labels drawn from the atlas can be laid out off the device; the atlas
+ * itself only copies each glyph out of its bitmap.
+ */
+
+final class GlyphLayout {
+
+    /**
+     * Chars the atlas holds, in glyph order
+     */
+    static final String GLYPHS = "0123456789-.";
+
+    private final float[] advances;
+    private final float anchor;
+    private final int glyphTop;
+
+    /**
+     * @param advances advance of each glyph of {@link #GLYPHS}
+     * @param anchor   share of the label width left of the point it is drawn at, 0 for left
+     *                 aligned text, 0.5 for centered and 1 for right aligned
+     * @param glyphTop top of the glyphs relative to the baseline, negative above it
+     */
+
+    GlyphLayout(float[] advances, float anchor, int glyphTop) {
+        this.advances = advances;
+        this.anchor = anchor;
+        this.glyphTop = glyphTop;
+    }
+
+    /**
+     * @return whether every char of the label has a glyph in the atlas
+     */
+
+    boolean canDraw(char[] label, int length) {
+        for (int i = 0; i < length; i++) {
+            if (glyphIndex(label[i]) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return width of the label, only valid when {@link #canDraw(char[], int)} holds
+     */
+
+    float measure(char[] label, int length) {
+        float width = 0;
+        for (int i = 0; i < length; i++) {
+            width += advances[glyphIndex(label[i])];
+        }
+        return width;
+    }
+
+    float advance(int glyph) {
+        return advances[glyph];
+    }
+
+    /**
+     * Draws the label glyph by glyph, where drawing it as text with the paint the atlas was
+     * built from would put it
+     *
+     * @param width  width of the label as given by {@link #measure(char[], int)}
+     * @param x      anchor of the label, on the side given by the text align
+     * @param y      baseline of the label
+     * @param detail opacity to draw the glyphs with
+     */
+
+    void draw(DialCanvas canvas, char[] label, int length, float width, float x, float y,
+              float detail) {
+        float left = x - width * anchor;
+        float top = y + glyphTop;
+        for (int i = 0; i < length; i++) {
+            int glyph = glyphIndex(label[i]);
+            canvas.drawGlyph(glyph, left, top, detail);
+            left += advances[glyph];
+        }
+    }
+
+    private static int glyphIndex(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c == '-') {
+            return 10;
+        } else if (c == '.') {
+            return 11;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,247 @@
+package com.moldedbits.dialpicker;
+
+import java.util.Arrays;
+
+/**
+ * Bounded cache of tick labels keyed by tick index.
+ * Labels are fetched from the {@link DialAdapter} lazily and copied into char buffers owned
+ * by the cache, so once the visible ticks are warm, drawing them allocates nothing. When the
+ * cache is full the least recently used label is evicted and its buffer is reused for the new one.
+ */
+
+final class LabelCache {
+
+    private static final int NONE = -1;
+
+    /**
+     * Enough room for any int, including the sign
+     */
+    private static final int MAX_LABEL_LENGTH = 11;
+
+    private final int capacity;
+    private final DialAdapter adapter;
+    private final int bucketMask;
+    private final int[] buckets;
+    private final int[] keys;
+    private final int[] chain;
+    private final int[] newer;
+    private final int[] older;
+    private final char[][] labels;
+    private final int[] lengths;
+    private final String[] values;
+    private final float[] widths;
+    private int size;
+    private int newest = NONE;
+    private int oldest = NONE;
+
+    /**
+     * @param capacity maximum number of labels kept at the same time
+     * @param adapter  supplies the labels
+     */
+
+    LabelCache(int capacity, DialAdapter adapter) {
+        this.capacity = Math.max(1, capacity);
+        this.adapter = adapter;
+        int bucketCount = Integer.highestOneBit(this.capacity * 2 - 1) << 1;
+        bucketMask = bucketCount - 1;
+        buckets = new int[bucketCount];
+        keys = new int[this.capacity];
+        chain = new int[this.capacity];
+        newer = new int[this.capacity];
+        older = new int[this.capacity];
+        labels = new char[this.capacity][MAX_LABEL_LENGTH];
+        lengths = new int[this.capacity];
+        values = new String[this.capacity];
+        widths = new float[this.capacity];
+        clear();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Drops every label, keeping the buffers for reuse
+     */
+
+    void clear() {
+        Arrays.fill(buckets, NONE);
+        Arrays.fill(values, null);
+        size = 0;
+        newest = NONE;
+        oldest = NONE;
+    }
+
+    /**
+     * @param index tick index whose label is needed
+     * @return slot holding the label, valid until the next call to this method
+     */
+
+    int obtain(int index) {
+        int bucket = index & bucketMask;
+        for (int slot = buckets[bucket]; slot != NONE; slot = chain[slot]) {
+            if (keys[slot] == index) {
+                markUsed(slot);
+                return slot;
+            }
+        }
+
+        int slot;
+        if (size < capacity) {
+            slot = size++;
+        } else {
+            slot = oldest;
+            unlink(slot);
+            removeFromBucket(slot);
+        }
+        keys[slot] = index;
+        lengths[slot] = fill(slot, index);
+        values[slot] = null;
+        widths[slot] = Float.NaN;
+        chain[slot] = buckets[bucket];
+        buckets[bucket] = slot;
+        pushNewest(slot);
+        return slot;
+    }
+
+    char[] chars(int slot) {
+        return labels[slot];
+    }
+
+    int length(int slot) {
+        return lengths[slot];
+    }
+
+    /**
+     * @return width cached with {@link #setWidth(int, float)}, NaN until then
+     */
+
+    float width(int slot) {
+        return widths[slot];
+    }
+
+    void setWidth(int slot, float width) {
+        widths[slot] = width;
+    }
+
+    /**
+     * @param slot slot returned by {@link #obtain(int)}
+     * @return the label, single digits zero padded to two, as handed to value listeners
+     */
+
+    String value(int slot) {
+        if (values[slot] == null) {
+            int length = lengths[slot];
+            char[] label = labels[slot];
+            boolean negative = length > 0 && label[0] == '-';
+            int digits = negative ? length - 1 : length;
+            if (digits != 1 || !Character.isDigit(label[length - 1])) {
+                values[slot] = new String(label, 0, length);
+            } else if (negative) {
+                values[slot] = "-0" + label[1];
+            } else {
+                values[slot] = "0" + label[0];
+            }
+        }
+        return values[slot];
+    }
+
+    private void markUsed(int slot) {
+        if (slot != newest) {
+            unlink(slot);
+            pushNewest(slot);
+        }
+    }
+
+    private void pushNewest(int slot) {
+        older[slot] = newest;
+        newer[slot] = NONE;
+        if (newest != NONE) {
+            newer[newest] = slot;
+        }
+        newest = slot;
+        if (oldest == NONE) {
+            oldest = slot;
+        }
+    }
+
+    private void unlink(int slot) {
+        if (newer[slot] != NONE) {
+            older[newer[slot]] = older[slot];
+        } else {
+            newest = older[slot];
+        }
+        if (older[slot] != NONE) {
+            newer[older[slot]] = newer[slot];
+        } else {
+            oldest = newer[slot];
+        }
+    }
+
+    private void removeFromBucket(int slot) {
+        int bucket = keys[slot] & bucketMask;
+        if (buckets[bucket] == slot) {
+            buckets[bucket] = chain[slot];
+            return;
+        }
+        for (int previous = buckets[bucket]; previous != NONE; previous = chain[previous]) {
+            if (chain[previous] == slot) {
+                chain[previous] = chain[slot];
+                return;
+            }
+        }
+    }
+
+    /**
+     * Copies the label of index into the buffer of slot, formatting plain ranges straight
+     * into it and growing the buffer only for labels longer than any seen in that slot.
+     * Subclasses of {@link RangeDialAdapter} may label their ticks differently, so only the
+     * class itself is formatted directly.
+     *
+     * @return number of chars written
+     */
+
+    private int fill(int slot, int index) {
+        if (adapter.getClass() == RangeDialAdapter.class) {
+            return format(((RangeDialAdapter) adapter).getValue(index), labels[slot]);
+        }
+        CharSequence label = adapter.getLabel(index);
+        int length = label.length();
+        if (length > labels[slot].length) {
+            labels[slot] = new char[length];
+        }
+        for (int i = 0; i < length; i++) {
+            labels[slot][i] = label.charAt(i);
+        }
+        return length;
+    }
+
+    /**
+     * Writes the decimal digits of value into out without going through a String
+     *
+     * @return number of chars written
+     */
+
+    static int format(int value, char[] out) {
+        if (value == Integer.MIN_VALUE) {
+            String text = String.valueOf(value);
+            text.getChars(0, text.length(), out, 0);
+            return text.length();
+        }
+        int length = 0;
+        if (value < 0) {
+            out[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        length += digits;
+        for (int i = length - 1; i >= length - digits; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return length;
+    }
+}
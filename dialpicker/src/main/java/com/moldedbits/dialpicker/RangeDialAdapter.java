@@ -0,0 +1,65 @@
+package com.moldedbits.dialpicker;
+
+/**
+ * Evenly spaced integer values, as given by the minValue, maxValue, leastCount and
+ * lineInterval attributes. Used by {@link DialView} unless another adapter is set.
+ */
+
+public class RangeDialAdapter implements DialAdapter {
+
+    private final int minValue;
+    private final int leastCount;
+    private final int lineInterval;
+    private final int count;
+
+    /**
+     * @param minValue     value of the first tick
+     * @param maxValue     value of the last tick
+     * @param leastCount   value between two neighbouring ticks
+     * @param lineInterval every lineInterval-th tick is a major one
+     */
+
+    public RangeDialAdapter(int minValue, int maxValue, int leastCount, int lineInterval) {
+        this.minValue = minValue;
+        this.leastCount = Math.max(1, leastCount);
+        this.lineInterval = lineInterval;
+        count = Math.max(0, (maxValue - minValue) / this.leastCount + 1);
+    }
+
+    /**
+     * @param index tick index
+     * @return value of that tick
+     */
+
+    public int getValue(int index) {
+        return minValue + index * leastCount;
+    }
+
+    /**
+     * @param value any value, inside the range or not
+     * @return index of the tick whose value is closest to it
+     */
+
+    public int indexOf(int value) {
+        long offset = (long) value - minValue;
+        long index = offset >= 0
+                ? (offset + leastCount / 2) / leastCount
+                : -((-offset + leastCount / 2) / leastCount);
+        return (int) Math.max(0, Math.min(count - 1, index));
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public CharSequence getLabel(int index) {
+        return String.valueOf(getValue(index));
+    }
+
+    @Override
+    public boolean isMajor(int index) {
+        return lineInterval > 0 && index % lineInterval == 0;
+    }
+}
@@ -0,0 +1,115 @@
+package com.moldedbits.dialpicker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Touch samples handed from the main thread to the render thread of a
+ * {@link DialSurfaceView}. A fixed ring with one writer and one reader, so neither side
+ * ever takes a lock or allocates while the finger moves.
+ */
+
+final class TouchQueue {
+
+    static final int DOWN = 0;
+    static final int MOVE = 1;
+    static final int UP = 2;
+
+    /**
+     * Slots moves leave free, so a down and the up that follows always fit
+     */
+    private static final int RESERVED_SLOTS = 2;
+
+    private final int mask;
+    private final int[] types;
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] xVelocities;
+    private final float[] yVelocities;
+
+    /**
+     * Samples written and read so far. Each side only writes its own count, and publishes
+     * the slots it has finished with through it.
+     */
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity number of samples held at once, rounded up to a power of two
+     */
+
+    TouchQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, RESERVED_SLOTS * 2) - 1) << 1;
+        mask = size - 1;
+        types = new int[size];
+        xs = new float[size];
+        ys = new float[size];
+        xVelocities = new float[size];
+        yVelocities = new float[size];
+    }
+
+    /**
+     * Called on the writing thread only
+     *
+     * @param type      one of {@link #DOWN}, {@link #MOVE} or {@link #UP}
+     * @param x         raw x of the touch in the view
+     * @param y         raw y of the touch in the view
+     * @param xVelocity x velocity in pixels per millisecond, only set on {@link #UP}
+     * @param yVelocity y velocity in pixels per millisecond, only set on {@link #UP}
+     * @return false when the reader has fallen so far behind the sample was dropped
+     */
+
+    boolean offer(int type, float x, float y, float xVelocity, float yVelocity) {
+        long written = head.get();
+        int free = types.length - (int) (written - tail.get());
+        if (free <= (type == MOVE ? RESERVED_SLOTS : 0)) {
+            return false;
+        }
+        int slot = (int) written & mask;
+        types[slot] = type;
+        xs[slot] = x;
+        ys[slot] = y;
+        xVelocities[slot] = xVelocity;
+        yVelocities[slot] = yVelocity;
+        head.lazySet(written + 1);
+        return true;
+    }
+
+    /**
+     * Called on the reading thread only
+     *
+     * @return slot of the oldest sample to read with the getters, or -1 when there is none
+     */
+
+    int peek() {
+        long read = tail.get();
+        return read == head.get() ? -1 : (int) read & mask;
+    }
+
+    /**
+     * Hands the slot returned by {@link #peek()} back to the writer
+     */
+
+    void remove() {
+        tail.lazySet(tail.get() + 1);
+    }
+
+    int type(int slot) {
+        return types[slot];
+    }
+
+    float x(int slot) {
+        return xs[slot];
+    }
+
+    float y(int slot) {
+        return ys[slot];
+    }
+
+    float xVelocity(int slot) {
+        return xVelocities[slot];
+    }
+
+    float yVelocity(int slot) {
+        return yVelocities[slot];
+    }
+}
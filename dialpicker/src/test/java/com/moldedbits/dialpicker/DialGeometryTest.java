@@ -0,0 +1,198 @@
+package com.moldedbits.dialpicker;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Plain JVM tests of {@link DialGeometry}, which has no android dependencies
+ */
+
+public class DialGeometryTest {
+
+    private static final DialOrientation[] ORIENTATIONS = {
+            DialOrientation.LEFT, DialOrientation.TOP, DialOrientation.RIGHT,
+            DialOrientation.BOTTOM, DialOrientation.of(45, true)
+    };
+
+    /**
+     * Largest difference allowed between the recurrence and the trig functions
+     */
+    private static final double RECURRENCE_TOLERANCE = 1e-12;
+
+    private static final double DECELERATION = 10;
+    private static final double[] FLING_VELOCITIES = {0.3, -2, 6, -25};
+    private static final double[] REFRESH_RATES = {30, 60, 90, 120};
+
+    /**
+     * Rotation and velocity of a fling after secs, stepped at the given frame intervals the
+     * way DialView steps it, one frame time after the other
+     *
+     * @return rotation and velocity, in that order
+     */
+
+    private static double[] stepFling(double velocity, double[] frameSecs, double secs) {
+        double theta = 0;
+        double elapsed = 0;
+        for (int frame = 0; elapsed < secs - 1e-12; frame++) {
+            double step = Math.min(frameSecs[frame % frameSecs.length], secs - elapsed);
+            theta += DialGeometry.flingDistance(velocity, DECELERATION, step);
+            velocity = DialGeometry.flingVelocityAfter(velocity, DECELERATION, step);
+            elapsed += step;
+        }
+        return new double[]{theta, velocity};
+    }
+
+    @Test
+    public void flingDecaysTheSameAtEveryRefreshRate() {
+        for (double velocity : FLING_VELOCITIES) {
+            // a tenth of a second is a whole number of frames at every rate
+            for (int tenths = 1; tenths <= 30; tenths++) {
+                double secs = tenths / 10.0;
+                double[] reference = stepFling(velocity, new double[]{secs}, secs);
+                for (double rate : REFRESH_RATES) {
+                    double[] stepped = stepFling(velocity, new double[]{1 / rate}, secs);
+                    assertEquals("rotation at " + rate + " Hz", reference[0], stepped[0], 1e-9);
+                    assertEquals("velocity at " + rate + " Hz", reference[1], stepped[1], 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void flingDecaysTheSameWithIrregularFrames() {
+        Random random = new Random(42);
+        double[] frameSecs = new double[257];
+        for (int i = 0; i < frameSecs.length; i++) {
+            // mostly 60 Hz with dropped frames and early vsyncs mixed in
+            frameSecs[i] = (1 + random.nextInt(4)) / 60.0 * (0.8 + 0.4 * random.nextDouble());
+        }
+        for (double velocity : FLING_VELOCITIES) {
+            for (double secs = 0.05; secs < 3; secs += 0.173) {
+                double[] reference = stepFling(velocity, new double[]{secs}, secs);
+                double[] stepped = stepFling(velocity, frameSecs, secs);
+                assertEquals(reference[0], stepped[0], 1e-9);
+                assertEquals(reference[1], stepped[1], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void flingStopsAtTheSameDistanceAtEveryRefreshRate() {
+        for (double velocity : FLING_VELOCITIES) {
+            double stopSecs = DialGeometry.flingStopSecs(velocity, DECELERATION);
+            double stopDistance = Math.signum(velocity) * velocity * velocity / (2 * DECELERATION);
+            for (double rate : REFRESH_RATES) {
+                // run well past the stop, the dial has to stay put once it got there
+                double[] stepped = stepFling(velocity, new double[]{1 / rate}, stopSecs + 1);
+                assertEquals("distance at " + rate + " Hz", stopDistance, stepped[0], 1e-9);
+                assertEquals(0, stepped[1], 0);
+            }
+        }
+    }
+
+    /**
+     * Steps a fling of a dial linked to a larger one with room to take every turn, wrapping
+     * and running past the ends the way DialView.rotate does
+     *
+     * @return index the dial comes to rest on, and the turns carried over to the larger dial
+     */
+
+    private static int[] stepLinkedFling(DialGeometry geometry, int startIndex, double velocity,
+                                         double frameSecs) {
+        double theta = geometry.thetaForIndex(startIndex);
+        int carried = 0;
+        while (velocity != 0) {
+            theta += DialGeometry.flingDistance(velocity, DECELERATION, frameSecs);
+            velocity = DialGeometry.flingVelocityAfter(velocity, DECELERATION, frameSecs);
+            int turns = geometry.wrapTurns(theta);
+            if (turns != 0) {
+                theta = geometry.wrapTheta(theta, turns);
+                carried += turns;
+            }
+            assertEquals(0, geometry.wrapTurns(theta));
+        }
+        return new int[]{geometry.indexAtTheta(theta), carried};
+    }
+
+    @Test
+    public void linkedFlingCarriesTheSameAtEveryRefreshRate() {
+        // the minutes of a clock, flung on from tick 50 towards the end at several speeds
+        DialGeometry geometry = layout(DialOrientation.TOP, 60, 6);
+        double forward = Math.signum(geometry.thetaForIndex(1) - geometry.thetaForIndex(0));
+        for (double speed : new double[]{2, 4.6, 5, 6, 9, 15}) {
+            double velocity = forward * speed;
+            double distance = speed * speed / (2 * DECELERATION);
+            // where the fling would stop if the ticks went on for ever
+            double ticks = 50 + distance / Math.toRadians(6);
+            int expectedCarried = (int) Math.floor((ticks + 0.5) / 60);
+            int expectedIndex = (int) Math.round(ticks - expectedCarried * 60);
+            for (double rate : REFRESH_RATES) {
+                int[] rest = stepLinkedFling(geometry, 50, velocity, 1 / rate);
+                assertEquals("turns carried at " + speed + " rad/s, " + rate + " Hz", expectedCarried, rest[1]);
+                assertEquals("tick at " + speed + " rad/s, " + rate + " Hz", expectedIndex, rest[0]);
+            }
+        }
+    }
+
+    @Test
+    public void endPassedTellsTheEnds() {
+        DialGeometry geometry = layout(DialOrientation.RIGHT, 60, 6);
+        double gap = geometry.thetaForIndex(1) - geometry.thetaForIndex(0);
+        assertEquals(0, geometry.endPassed(geometry.thetaForIndex(0)));
+        assertEquals(0, geometry.endPassed(geometry.thetaForIndex(59)));
+        assertEquals(-1, geometry.endPassed(geometry.thetaForIndex(0) - gap / 4));
+        assertEquals(1, geometry.endPassed(geometry.thetaForIndex(59) + gap / 4));
+        // short of the wrap point a dial past its end has no turns to carry yet
+        assertEquals(0, geometry.wrapTurns(geometry.thetaForIndex(59) + gap * 0.49));
+        assertEquals(1, geometry.wrapTurns(geometry.thetaForIndex(59) + gap * 0.51));
+    }
+
+    private static DialGeometry layout(DialOrientation orientation, int tickCount, double gapDegrees) {
+        DialGeometry geometry = new DialGeometry(orientation);
+        geometry.setTicks(tickCount, Math.toRadians(gapDegrees));
+        geometry.layout(600, 600, 150, 42);
+        return geometry;
+    }
+
+    @Test
+    public void layoutTicksMatchesTrigForVisibleTicks() {
+        for (DialOrientation orientation : ORIENTATIONS) {
+            DialGeometry geometry = layout(orientation, 100000, 3);
+            double[] cos = new double[geometry.maxVisibleTicks()];
+            double[] sin = new double[cos.length];
+            for (int step = 0; step < 1000; step++) {
+                double theta = geometry.thetaForIndex(step * 97);
+                double firstTick = geometry.firstVisibleTick(theta);
+                int count = geometry.layoutTicks(theta, firstTick, geometry.lastVisibleTick(theta), cos, sin);
+                assertTrue(count > 0);
+                for (int i = 0; i < count; i++) {
+                    double angle = geometry.tickTheta(theta, firstTick + i);
+                    assertEquals(Math.cos(angle), cos[i], RECURRENCE_TOLERANCE);
+                    assertEquals(Math.sin(angle), sin[i], RECURRENCE_TOLERANCE);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void layoutTicksStaysAccurateOverManyTurns() {
+        // far more ticks than ever drawn in one frame, so any drift of the recurrence adds up
+        int count = 100000;
+        DialGeometry geometry = layout(DialOrientation.LEFT, count, 0.7);
+        double[] cos = new double[count];
+        double[] sin = new double[count];
+        double theta = geometry.getInitialTheta() + 0.3;
+        assertEquals(count, geometry.layoutTicks(theta, 0, count - 1, cos, sin));
+        double maxError = 0;
+        for (int i = 0; i < count; i++) {
+            double angle = geometry.tickTheta(theta, i);
+            maxError = Math.max(maxError, Math.abs(Math.cos(angle) - cos[i]));
+            maxError = Math.max(maxError, Math.abs(Math.sin(angle) - sin[i]));
+        }
+        assertTrue("recurrence drifted by " + maxError, maxError < 1e-9);
+    }
+}
@@ -0,0 +1,306 @@
+package com.moldedbits.dialpicker;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Turns dials of every direction and a spread of range sizes through their range, drawing
+ * each frame with {@link DialFrame} onto a {@link RecordingCanvas}, in every render, level of
+ * detail and label mode, and checks the draw calls of every frame against budgets worked out
+ * from the visible arc. The budgets do not depend on the range size, so anything that makes a
+ * frame scale with the number of ticks fails here.
+ */
+
+public class DrawOpBudgetTest {
+
+    private static final int[] DIRECTIONS = {
+            DialGeometry.DIRECTION_LEFT, DialGeometry.DIRECTION_TOP,
+            DialGeometry.DIRECTION_RIGHT, DialGeometry.DIRECTION_BOTTOM
+    };
+    private static final String[] DIRECTION_NAMES = {"LEFT", "TOP", "RIGHT", "BOTTOM"};
+
+    private static final int[] TICK_COUNTS = {10, 1000, 100000, 1000000};
+
+    /**
+     * Frames each dial is turned through its range in, and turned slowly for
+     */
+    private static final int FRAMES = 400;
+
+    /**
+     * Rotation of a slow turn per frame, in tick gaps
+     */
+    private static final double SLOW_STEP = 0.3;
+
+    private static final int LINE_INTERVAL = 10;
+
+    /**
+     * Detail of the minor and major ticks with the level of detail off, and the details the
+     * velocity and auto modes fade through; minor ticks always fade first
+     */
+    private static final float[][] FULL_DETAIL = {{1, 1}};
+    private static final float[][] FADED_DETAIL = {{1, 1}, {0.5f, 1}, {0, 1}, {0, 0.5f}, {0, 0}};
+
+    /**
+     * Glyph atlas of a centered text paint, every glyph as wide as the recording canvas
+     * measures text
+     */
+    private static final GlyphLayout GLYPHS = new GlyphLayout(new float[]{
+            24, 24, 24, 24, 24, 24, 24, 24, 24, 24, 24, 24}, 0.5f, -24);
+
+    /**
+     * Warm turns measured at most; the JIT may still allocate on the thread now and then while
+     * it settles, but a frame that allocates shows up in every turn
+     */
+    private static final int ALLOCATION_TURNS = 3;
+
+    /**
+     * A dial laid out like the sample app's 200dp x 90dp dials at xxhdpi, drawing in one
+     * combination of modes
+     */
+
+    private static final class Dial {
+        final String name;
+        final DialGeometry geometry;
+        final DialFrame frame;
+        final int tickCount;
+        final boolean cached;
+        final boolean atlas;
+
+        Dial(int d, int tickCount, boolean cached, boolean atlas) {
+            this.tickCount = tickCount;
+            this.cached = cached;
+            this.atlas = atlas;
+            name = DIRECTION_NAMES[d] + " " + tickCount + " ticks" + (cached ? " cached" : "")
+                    + (atlas ? " atlas" : "");
+            DialAdapter adapter = new RangeDialAdapter(0, tickCount - 1, 1, LINE_INTERVAL);
+            geometry = new DialGeometry(DialOrientation.forDirection(DIRECTIONS[d]));
+            geometry.setTicks(adapter.getCount(), Math.toRadians(3));
+            boolean vertical = DIRECTIONS[d] == DialGeometry.DIRECTION_LEFT
+                    || DIRECTIONS[d] == DialGeometry.DIRECTION_RIGHT;
+            int width = vertical ? 270 : 600;
+            int height = vertical ? 600 : 270;
+            geometry.layout(width, height, 150, 42);
+            frame = new DialFrame(adapter);
+            frame.setGeometry(geometry);
+            frame.resizeLabelCache(LINE_INTERVAL);
+            frame.setCached(cached);
+            frame.setGlyphs(atlas ? GLYPHS : null);
+            frame.setBand(0, 0, width, height);
+        }
+
+        double theta(double tick) {
+            double first = geometry.thetaForIndex(0);
+            return first + (geometry.thetaForIndex(1) - first) * tick;
+        }
+
+        int maxSegments() {
+            return geometry.maxVisibleTicks();
+        }
+
+        int maxLabels() {
+            return geometry.maxVisibleTicks() / LINE_INTERVAL + 1;
+        }
+
+        int maxLabelChars() {
+            return String.valueOf(tickCount - 1).length();
+        }
+    }
+
+    /**
+     * Most of each kind of draw call any one frame of a turn made
+     */
+
+    private static final class Peak {
+        int segments;
+        int texts;
+        int recordings;
+    }
+
+    /**
+     * Draws a frame at theta and checks it against the budgets of the dial
+     */
+
+    private static void drawFrame(Dial dial, RecordingCanvas canvas, double theta, float minorDetail,
+                                  float majorDetail, Peak peak) {
+        canvas.reset();
+        dial.frame.draw(canvas, theta, minorDetail, majorDetail);
+        String frame = dial.name + " at detail " + minorDetail + "/" + majorDetail;
+
+        assertEquals(frame + ": face and arc", 2, canvas.getCircles());
+        assertEquals(frame + ": dashed arc", 1, canvas.getPathEffects());
+        assertEquals(frame + ": band clip", 1, canvas.getClips());
+        assertEquals(frame + ": unbalanced save", 0, canvas.getDepth());
+
+        assertTrue(frame + ": tick line calls", canvas.getLineCalls() <= 2);
+        assertTrue(frame + ": tick segments", canvas.getLineSegments() <= dial.maxSegments());
+        int labelOps = dial.atlas ? canvas.getGlyphs() : canvas.getTexts();
+        int maxLabelOps = dial.maxLabels() * (dial.atlas ? dial.maxLabelChars() : 1);
+        assertTrue(frame + ": label calls", labelOps <= maxLabelOps);
+        if (dial.atlas) {
+            assertEquals(frame + ": labels drawn as text", 0, canvas.getTexts());
+        } else {
+            assertEquals(frame + ": labels drawn from glyphs", 0, canvas.getGlyphs());
+        }
+        if (minorDetail <= 0) {
+            assertEquals(frame + ": labels faded out", 0, labelOps);
+        }
+
+        int faces = dial.cached ? (minorDetail >= 1 ? 1 : 0) + (majorDetail >= 1 ? 1 : 0) : 0;
+        assertEquals(frame + ": faces drawn", faces, canvas.getFaces());
+        int lineCalls = (minorDetail > 0 && faces < 2 ? 1 : 0) + (majorDetail > 0 && faces < 2 ? 1 : 0);
+        assertTrue(frame + ": tick lines drawn beside the faces", canvas.getLineCalls() <= lineCalls);
+        if (dial.cached && minorDetail >= 1 && majorDetail >= 1) {
+            assertEquals(frame + ": tick lines drawn past the faces", 0, canvas.getLineCalls());
+        }
+        if (canvas.getRecordings() > 0) {
+            // one extra visible arc either side of the visible one
+            assertEquals(frame + ": faces recorded", 2, canvas.getRecordings());
+            assertTrue(frame + ": recorded calls", canvas.getRecordedCalls() <= 2);
+            assertTrue(frame + ": recorded segments",
+                    canvas.getRecordedSegments() <= 3 * dial.maxSegments() + 2);
+        }
+
+        int maxOps = 2 + 2 + (dial.cached ? 2 : 0) + maxLabelOps;
+        assertTrue(frame + ": draw calls " + canvas.getOps() + " over " + maxOps,
+                canvas.getOps() <= maxOps);
+
+        peak.segments = Math.max(peak.segments, canvas.getLineSegments());
+        peak.texts = Math.max(peak.texts, canvas.getTexts());
+        peak.recordings += canvas.getRecordings();
+    }
+
+    /**
+     * Turns the dial from its first tick to its last in {@link #FRAMES} frames
+     */
+
+    private static Peak turn(Dial dial, RecordingCanvas canvas, float minorDetail, float majorDetail) {
+        Peak peak = new Peak();
+        for (int frame = 0; frame < FRAMES; frame++) {
+            double tick = (dial.tickCount - 1) * (double) frame / (FRAMES - 1);
+            drawFrame(dial, canvas, dial.theta(tick), minorDetail, majorDetail, peak);
+        }
+        return peak;
+    }
+
+    /**
+     * Turns the dial a fraction of a tick per frame, the way a slow drag does
+     */
+
+    private static Peak turnSlowly(Dial dial, RecordingCanvas canvas, float minorDetail,
+                                   float majorDetail) {
+        Peak peak = new Peak();
+        double start = Math.max(0, dial.tickCount / 2 - FRAMES * SLOW_STEP / 2);
+        for (int frame = 0; frame < FRAMES; frame++) {
+            double tick = Math.min(dial.tickCount - 1, start + frame * SLOW_STEP);
+            drawFrame(dial, canvas, dial.theta(tick), minorDetail, majorDetail, peak);
+        }
+        return peak;
+    }
+
+    private static void checkEveryDial(float[][] details) {
+        RecordingCanvas canvas = new RecordingCanvas();
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            for (int tickCount : TICK_COUNTS) {
+                for (int mode = 0; mode < 4; mode++) {
+                    for (float[] detail : details) {
+                        Dial dial = new Dial(d, tickCount, (mode & 1) != 0, (mode & 2) != 0);
+                        turn(dial, canvas, detail[0], detail[1]);
+                        turnSlowly(dial, canvas, detail[0], detail[1]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fullDetailFramesStayInBudget() {
+        // level of detail off
+        checkEveryDial(FULL_DETAIL);
+    }
+
+    @Test
+    public void fadingDetailFramesStayInBudget() {
+        // level of detail by velocity, or auto, which only moves the velocities detail fades at
+        checkEveryDial(FADED_DETAIL);
+    }
+
+    @Test
+    public void framesDoNotGrowWithTheRange() {
+        RecordingCanvas canvas = new RecordingCanvas();
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            Peak reference = turn(new Dial(d, 1000, false, false), canvas, 1, 1);
+            for (int tickCount : new int[]{100000, 1000000}) {
+                Peak peak = turn(new Dial(d, tickCount, false, false), canvas, 1, 1);
+                String dial = DIRECTION_NAMES[d] + " " + tickCount + " ticks";
+                assertEquals(dial + ": tick segments", reference.segments, peak.segments);
+                assertEquals(dial + ": labels", reference.texts, peak.texts);
+            }
+        }
+    }
+
+    @Test
+    public void slowTurnsReuseTheRecordedFaces() {
+        RecordingCanvas canvas = new RecordingCanvas();
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            Dial dial = new Dial(d, 1000000, true, false);
+            Peak peak = turnSlowly(dial, canvas, 1, 1);
+            // the faces hold up to an extra visible arc either side, capped to a whole turn,
+            // so they are only recorded again once the dial has turned that far
+            double turned = Math.abs(dial.theta(FRAMES * SLOW_STEP) - dial.theta(0));
+            double visibleArc = dial.geometry.getVisibleArcEnd() - dial.geometry.getVisibleArcStart();
+            double slack = Math.min(visibleArc, (2 * Math.PI - visibleArc) / 2);
+            int maxRecordings = 2 * ((int) Math.ceil(turned / slack) + 1);
+            assertTrue(DIRECTION_NAMES[d] + ": faces recorded " + peak.recordings + " times",
+                    peak.recordings <= maxRecordings);
+        }
+    }
+
+    @Test
+    public void warmFramesAllocateNothing() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue("this JVM does not count allocated bytes per thread",
+                bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue("this JVM does not count allocated bytes per thread",
+                threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        RecordingCanvas canvas = new RecordingCanvas();
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            for (int mode = 0; mode < 4; mode++) {
+                Dial dial = new Dial(d, 1000000, (mode & 1) != 0, (mode & 2) != 0);
+                for (float[] detail : FADED_DETAIL) {
+                    // the first turn sizes the buffers and the label cache
+                    turn(dial, canvas, detail[0], detail[1]);
+                    long allocated = -1;
+                    for (int i = 0; i < ALLOCATION_TURNS && allocated != 0; i++) {
+                        long before = threads.getThreadAllocatedBytes(thread);
+                        warmTurn(dial, canvas, detail[0], detail[1]);
+                        allocated = threads.getThreadAllocatedBytes(thread) - before;
+                    }
+                    assertEquals(dial.name + " at detail " + detail[0] + "/" + detail[1]
+                            + ": bytes allocated by a warm turn", 0, allocated);
+                }
+            }
+        }
+    }
+
+    /**
+     * Same frames as {@link #turn}, without the checks, which build their messages
+     */
+
+    private static void warmTurn(Dial dial, RecordingCanvas canvas, float minorDetail,
+                                 float majorDetail) {
+        for (int frame = 0; frame < FRAMES; frame++) {
+            double tick = (dial.tickCount - 1) * (double) frame / (FRAMES - 1);
+            canvas.reset();
+            dial.frame.draw(canvas, dial.theta(tick), minorDetail, majorDetail);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.moldedbits.dialpicker;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Plain JVM tests of {@link LabelCache}; allocations are counted with the per-thread
+ * allocation counter of the HotSpot JVM
+ */
+
+public class LabelCacheTest {
+
+    private static final int LINE_INTERVAL = 10;
+    private static final int VISIBLE_TICKS = 80;
+    private static final int CAPACITY = (VISIBLE_TICKS / LINE_INTERVAL + 1) * 2;
+
+    /**
+     * Obtains every label a frame at firstTick draws, as DialRenderer does
+     *
+     * @return sum of the label lengths, so the work cannot be optimised away
+     */
+
+    private static int drawFrame(LabelCache cache, DialAdapter adapter, int firstTick) {
+        int chars = 0;
+        for (int i = firstTick; i < firstTick + VISIBLE_TICKS; i++) {
+            if (adapter.isMajor(i)) {
+                int slot = cache.obtain(i);
+                chars += cache.length(slot) + cache.chars(slot)[0];
+            }
+        }
+        return chars;
+    }
+
+    private static int sweep(LabelCache cache, DialAdapter adapter, int frames) {
+        int chars = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            chars += drawFrame(cache, adapter, frame);
+        }
+        return chars;
+    }
+
+    @Test
+    public void steadySweepAllocatesNothing() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue("this JVM does not count allocated bytes per thread",
+                bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue("this JVM does not count allocated bytes per thread",
+                threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        DialAdapter adapter = new RangeDialAdapter(-500000, 500000, 1, LINE_INTERVAL);
+        LabelCache cache = new LabelCache(CAPACITY, adapter);
+        int frames = 20000;
+        // warm up the cache and the JIT over the same frames that are measured
+        sweep(cache, adapter, frames);
+        sweep(cache, adapter, frames);
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        int chars = sweep(cache, adapter, frames);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        // the sweep runs far past the capacity, so labels are evicted and formatted again
+        assertEquals("bytes allocated by " + frames + " frames", 0, allocated);
+        assertTrue(chars > 0);
+    }
+
+    @Test
+    public void reusesLabelBuffersOnEviction() {
+        DialAdapter adapter = new RangeDialAdapter(0, 100000, 1, LINE_INTERVAL);
+        LabelCache cache = new LabelCache(CAPACITY, adapter);
+        char[][] buffers = new char[CAPACITY][];
+        for (int i = 0; i < CAPACITY; i++) {
+            int slot = cache.obtain(i * LINE_INTERVAL);
+            buffers[slot] = cache.chars(slot);
+        }
+        for (int i = CAPACITY; i < CAPACITY * 50; i++) {
+            int slot = cache.obtain(i * LINE_INTERVAL);
+            assertSame("buffer of slot " + slot, buffers[slot], cache.chars(slot));
+            assertEquals(String.valueOf(i * LINE_INTERVAL),
+                    new String(cache.chars(slot), 0, cache.length(slot)));
+        }
+    }
+
+    @Test
+    public void keepsValueWhileCached() {
+        DialAdapter adapter = new RangeDialAdapter(0, 100, 1, LINE_INTERVAL);
+        LabelCache cache = new LabelCache(CAPACITY, adapter);
+        String value = cache.value(cache.obtain(7));
+        assertEquals("07", value);
+        assertSame(value, cache.value(cache.obtain(7)));
+    }
+
+    @Test
+    public void usesLabelsOfRangeSubclasses() {
+        DialAdapter adapter = new RangeDialAdapter(0, 100, 1, LINE_INTERVAL) {
+            @Override
+            public CharSequence getLabel(int index) {
+                return getValue(index) + "kg";
+            }
+        };
+        LabelCache cache = new LabelCache(CAPACITY, adapter);
+        int slot = cache.obtain(20);
+        assertEquals("20kg", new String(cache.chars(slot), 0, cache.length(slot)));
+    }
+}
@@ -0,0 +1,197 @@
+package com.moldedbits.dialpicker;
+
+/**
+ * Stands in for the canvas a {@link DialFrame} draws on, counting its draw calls by kind
+ * instead of rasterising them. Calls made while a face is being recorded are counted apart
+ * from the ones drawn on the frame itself. Counting allocates nothing, so frames drawn onto it
+ * can be checked for allocations too.
+ */
+
+final class RecordingCanvas implements DialCanvas {
+
+    private static final float CHAR_WIDTH = 24;
+    private static final float TEXT_HEIGHT = 30;
+
+    private int circles;
+    private int pathEffects;
+    private int clips;
+    private int depth;
+    private int lineCalls;
+    private int lineSegments;
+    private int texts;
+    private int glyphs;
+    private int faces;
+    private int recordings;
+    private int recordedCalls;
+    private int recordedSegments;
+    private boolean recording;
+
+    void reset() {
+        circles = 0;
+        pathEffects = 0;
+        clips = 0;
+        lineCalls = 0;
+        lineSegments = 0;
+        texts = 0;
+        glyphs = 0;
+        faces = 0;
+        recordings = 0;
+        recordedCalls = 0;
+        recordedSegments = 0;
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, boolean arc) {
+        circles++;
+        if (arc) {
+            // the arc is drawn with a dash path effect
+            pathEffects++;
+        }
+    }
+
+    @Override
+    public int save() {
+        return depth++;
+    }
+
+    @Override
+    public void clipRect(int left, int top, int right, int bottom) {
+        clips++;
+    }
+
+    @Override
+    public void restoreToCount(int saveCount) {
+        depth = saveCount;
+    }
+
+    @Override
+    public void drawTickLines(float[] points, int count, boolean major, float detail) {
+        if (recording) {
+            recordedCalls++;
+            recordedSegments += count / 4;
+        } else {
+            lineCalls++;
+            lineSegments += count / 4;
+        }
+    }
+
+    @Override
+    public float measureText(char[] label, int length) {
+        return length * CHAR_WIDTH;
+    }
+
+    @Override
+    public float textHeight(char[] label, int length) {
+        return TEXT_HEIGHT;
+    }
+
+    @Override
+    public void drawText(char[] label, int length, float x, float y, float detail) {
+        if (recording) {
+            recordedCalls++;
+        } else {
+            texts++;
+        }
+    }
+
+    @Override
+    public void drawGlyph(int glyph, float left, float top, float detail) {
+        if (recording) {
+            recordedCalls++;
+        } else {
+            glyphs++;
+        }
+    }
+
+    @Override
+    public boolean canDrawFaces() {
+        return true;
+    }
+
+    @Override
+    public void beginFace(boolean minor, int size, float dx, float dy) {
+        recording = true;
+        recordings++;
+    }
+
+    @Override
+    public void endFace() {
+        recording = false;
+    }
+
+    @Override
+    public void drawFaces(boolean minor, boolean major, float degrees, float px, float py,
+                          float dx, float dy) {
+        if (minor) {
+            faces++;
+        }
+        if (major) {
+            faces++;
+        }
+    }
+
+    int getCircles() {
+        return circles;
+    }
+
+    int getPathEffects() {
+        return pathEffects;
+    }
+
+    int getClips() {
+        return clips;
+    }
+
+    /**
+     * @return saves not restored yet
+     */
+
+    int getDepth() {
+        return depth;
+    }
+
+    int getLineCalls() {
+        return lineCalls;
+    }
+
+    int getLineSegments() {
+        return lineSegments;
+    }
+
+    int getTexts() {
+        return texts;
+    }
+
+    int getGlyphs() {
+        return glyphs;
+    }
+
+    int getFaces() {
+        return faces;
+    }
+
+    /**
+     * @return faces recorded, each counted once
+     */
+
+    int getRecordings() {
+        return recordings;
+    }
+
+    int getRecordedCalls() {
+        return recordedCalls;
+    }
+
+    int getRecordedSegments() {
+        return recordedSegments;
+    }
+
+    /**
+     * @return draw calls on the frame itself; a line call counts once however many segments
+     * it has, and a face once however many calls it holds
+     */
+
+    int getOps() {
+        return circles + lineCalls + texts + glyphs + faces;
+    }
+}